@@ -0,0 +1,139 @@
+-- Banned IP check of registrations, before and after the banned_ips index (V6 of auth-service).
+--
+-- Run against a scratch MySQL 8 schema (never against homelab_db):
+--   mysql -u root -p bench < DOCS/BENCHMARK/banned_ip_lookup.sql
+--
+-- 2M events over one year from 100K users and 50K IP addresses, plus a NATed address
+-- (10.0.0.1) shared by 20K users and carrying 200K events. 1% of the users are banned.
+-- Every variant of the check is run through EXPLAIN ANALYZE for the NATed address and for
+-- a regular one:
+--   1. the original check: every event of the IP, then one users lookup per distinct user,
+--   2. the V4 check: distinct user ids of the IP within 90 days, then one IN (...) query,
+--   3. the banned_ips check: one primary key range holding only the rows of banned users.
+-- The rows read by 1 and 2 grow with the traffic behind the address, those read by 3 with
+-- the number of banned users seen behind it. Banning a user (indexUser) is explained too.
+
+DROP TABLE IF EXISTS system_events;
+CREATE TABLE system_events (
+    id          BINARY(16)   NOT NULL,
+    timestamp   DATETIME(6)  NOT NULL,
+    event_type  VARCHAR(50)  NOT NULL,
+    level       VARCHAR(255) NOT NULL,
+    criticality VARCHAR(255) NOT NULL,
+    user_id     VARCHAR(36)  NOT NULL,
+    ip_address  VARCHAR(255) NOT NULL,
+    message     VARCHAR(255) NOT NULL,
+    source      VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_system_events_user_timestamp ON system_events (user_id, timestamp);
+CREATE INDEX idx_system_events_ip_timestamp ON system_events (ip_address, timestamp, user_id);
+
+DROP TABLE IF EXISTS users;
+CREATE TABLE users (
+    id      VARCHAR(36) NOT NULL,
+    enabled BOOLEAN     NOT NULL DEFAULT TRUE,
+    PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS banned_ips;
+CREATE TABLE banned_ips (
+    ip_address VARCHAR(255) NOT NULL,
+    user_id    VARCHAR(36)  NOT NULL,
+    last_seen  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (ip_address, user_id)
+);
+CREATE INDEX idx_banned_ips_user_id ON banned_ips (user_id);
+
+DROP PROCEDURE IF EXISTS fill_banned_ip_bench;
+DELIMITER //
+CREATE PROCEDURE fill_banned_ip_bench()
+BEGIN
+    DECLARE n BIGINT DEFAULT 0;
+    SET SESSION cte_max_recursion_depth = 100000;
+
+    INSERT INTO users (id, enabled)
+    WITH RECURSIVE seq (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM seq WHERE i < 99999)
+    SELECT CONCAT('user-', i), i % 100 <> 0 FROM seq;
+
+    -- regular traffic
+    WHILE n < 1800000 DO
+        INSERT INTO system_events
+        WITH RECURSIVE seq (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM seq WHERE i < 100000)
+        SELECT UUID_TO_BIN(UUID()),
+               NOW(6) - INTERVAL FLOOR(RAND() * 31536000) SECOND,
+               'AUTHENTICATION_SUCCESS', 'INFO', 'REGULAR',
+               CONCAT('user-', FLOOR(RAND() * 100000)),
+               CONCAT('10.', 1 + FLOOR(RAND() * 200), '.', FLOOR(RAND() * 250), '.1'),
+               'benchmark', 'benchmark'
+        FROM seq;
+        SET n = n + 100000;
+    END WHILE;
+
+    -- the NATed address
+    WHILE n < 2000000 DO
+        INSERT INTO system_events
+        WITH RECURSIVE seq (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM seq WHERE i < 100000)
+        SELECT UUID_TO_BIN(UUID()),
+               NOW(6) - INTERVAL FLOOR(RAND() * 31536000) SECOND,
+               'AUTHENTICATION_SUCCESS', 'INFO', 'REGULAR',
+               CONCAT('user-', FLOOR(RAND() * 20000)),
+               '10.0.0.1',
+               'benchmark', 'benchmark'
+        FROM seq;
+        SET n = n + 100000;
+    END WHILE;
+
+    -- what V6 does on migration
+    INSERT INTO banned_ips (ip_address, user_id, last_seen)
+    SELECT e.ip_address, e.user_id, MAX(e.timestamp)
+    FROM system_events e
+    JOIN users u ON u.id = e.user_id
+    WHERE u.enabled = FALSE
+    GROUP BY e.ip_address, e.user_id;
+
+    ANALYZE TABLE system_events, users, banned_ips;
+END //
+
+DROP PROCEDURE IF EXISTS explain_banned_ip_lookup //
+CREATE PROCEDURE explain_banned_ip_lookup(IN ip VARCHAR(255))
+BEGIN
+    SELECT ip AS ip_address,
+           (SELECT COUNT(*) FROM system_events WHERE ip_address = ip) AS events,
+           (SELECT COUNT(*) FROM banned_ips WHERE ip_address = ip) AS banned_rows;
+
+    -- 1. original: every event of the IP, then users by id for each distinct user
+    EXPLAIN ANALYZE
+    SELECT * FROM system_events WHERE ip_address = ip;
+    EXPLAIN ANALYZE
+    SELECT u.enabled FROM users u
+    WHERE u.id IN (SELECT DISTINCT user_id FROM system_events WHERE ip_address = ip);
+
+    -- 2. V4: AuthEventJpaRepository.findUserIdsByIpAddressSince, then existsByIdInAndEnabledFalse
+    EXPLAIN ANALYZE
+    SELECT DISTINCT user_id FROM system_events
+    WHERE ip_address = ip AND timestamp >= NOW() - INTERVAL 90 DAY;
+    EXPLAIN ANALYZE
+    SELECT u.id FROM users u
+    WHERE u.id IN (SELECT DISTINCT user_id FROM system_events
+                   WHERE ip_address = ip AND timestamp >= NOW() - INTERVAL 90 DAY)
+      AND u.enabled = FALSE
+    LIMIT 1;
+
+    -- 3. V6: BannedIpJpaRepository.existsByIpAddressAndLastSeenGreaterThanEqual
+    EXPLAIN ANALYZE
+    SELECT ip_address FROM banned_ips
+    WHERE ip_address = ip AND last_seen >= NOW() - INTERVAL 90 DAY
+    LIMIT 1;
+END //
+DELIMITER ;
+
+CALL fill_banned_ip_bench();
+CALL explain_banned_ip_lookup('10.0.0.1');
+CALL explain_banned_ip_lookup('10.42.42.1');
+
+-- BannedIpJpaRepository.indexUser, run when a user is banned
+EXPLAIN ANALYZE
+SELECT ip_address, user_id, MAX(timestamp) FROM system_events
+WHERE user_id = 'user-4242' AND timestamp >= NOW() - INTERVAL 90 DAY
+GROUP BY ip_address, user_id;
@@ -0,0 +1,101 @@
+-- Query latency benchmark script of system_events as the table grows to 10M rows.
+--
+-- Run against a scratch MySQL 8 schema (never against homelab_db):
+--   mysql -u root -p bench < DOCS/BENCHMARK/system_events_queries.sql
+--
+-- The table and indexes match V3, V4 and V7 of auth-service. Rows are inserted in steps up to
+-- 100K, 1M and 10M rows: 100K users, 50K IP addresses, timestamps spread over one year.
+-- After each step, every query of SecurityEventJpaRepository and AuthEventJpaRepository is
+-- run through EXPLAIN ANALYZE. Run it a second time without the CREATE INDEX statements to
+-- get the plans before V4.
+--
+-- No results are recorded here yet. When comparing runs, check the access type of each plan
+-- (index range scan or full table scan, with or without filesort), the rows it examines, and
+-- its "actual time" at each table size.
+
+DROP TABLE IF EXISTS system_events;
+CREATE TABLE system_events (
+    id          BINARY(16)   NOT NULL,
+    timestamp   DATETIME(6)  NOT NULL,
+    event_type  VARCHAR(50)  NOT NULL,
+    level       VARCHAR(255) NOT NULL,
+    criticality VARCHAR(255) NOT NULL,
+    user_id     VARCHAR(36)  NOT NULL,
+    ip_address  VARCHAR(255) NOT NULL,
+    message     VARCHAR(255) NOT NULL,
+    source      VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_system_events_user_timestamp ON system_events (user_id, timestamp);
+CREATE INDEX idx_system_events_ip_timestamp ON system_events (ip_address, timestamp, user_id);
+CREATE INDEX idx_system_events_type_timestamp ON system_events (event_type, timestamp);
+CREATE INDEX idx_system_events_timestamp ON system_events (timestamp);
+
+DROP PROCEDURE IF EXISTS fill_system_events;
+DELIMITER //
+CREATE PROCEDURE fill_system_events(IN target BIGINT)
+BEGIN
+    DECLARE n BIGINT;
+    SELECT COUNT(*) INTO n FROM system_events;
+    SET SESSION cte_max_recursion_depth = 100000;
+    WHILE n < target DO
+        INSERT INTO system_events
+        WITH RECURSIVE seq (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM seq WHERE i < 100000)
+        SELECT UUID_TO_BIN(UUID()),
+               NOW(6) - INTERVAL FLOOR(RAND() * 31536000) SECOND,
+               ELT(1 + FLOOR(RAND() * 6), 'AUTHENTICATION_SUCCESS', 'AUTHENTICATION_FAILURE', 'USER_ACTION',
+                   'UNUSUAL_BEHAVIOR', 'SYSTEM', 'SECURITY'),
+               'INFO',
+               'REGULAR',
+               CONCAT('user-', FLOOR(RAND() * 100000)),
+               CONCAT('10.', FLOOR(RAND() * 200), '.', FLOOR(RAND() * 250), '.1'),
+               'benchmark',
+               'benchmark'
+        FROM seq;
+        SET n = n + 100000;
+    END WHILE;
+    ANALYZE TABLE system_events;
+END //
+
+DROP PROCEDURE IF EXISTS explain_system_events_queries //
+CREATE PROCEDURE explain_system_events_queries()
+BEGIN
+    SELECT COUNT(*) AS row_count FROM system_events;
+
+    -- SecurityEventJpaRepository.findByUserIdAndTimestampBetween, last 30 days
+    EXPLAIN ANALYZE
+    SELECT * FROM system_events
+    WHERE user_id = 'user-4242' AND timestamp BETWEEN NOW() - INTERVAL 30 DAY AND NOW()
+    ORDER BY timestamp DESC LIMIT 1000;
+
+    -- SecurityEventJpaRepository.findByUserId, detection state warm-up
+    EXPLAIN ANALYZE
+    SELECT * FROM system_events WHERE user_id = 'user-4242' ORDER BY timestamp DESC LIMIT 500;
+
+    -- SecurityEventJpaRepository.findByEventTypeAndTimestampBetween, last 30 days
+    EXPLAIN ANALYZE
+    SELECT * FROM system_events
+    WHERE event_type = 'SECURITY' AND timestamp BETWEEN NOW() - INTERVAL 30 DAY AND NOW()
+    ORDER BY timestamp DESC LIMIT 1000;
+
+    -- SecurityEventJpaRepository.findByTimestampBetween, last 30 days
+    EXPLAIN ANALYZE
+    SELECT * FROM system_events
+    WHERE timestamp BETWEEN NOW() - INTERVAL 30 DAY AND NOW()
+    ORDER BY timestamp DESC LIMIT 1000;
+
+    -- banned IP check of registrations up to V5, see banned_ip_lookup.sql
+    EXPLAIN ANALYZE
+    SELECT DISTINCT user_id FROM system_events
+    WHERE ip_address = '10.42.42.1' AND timestamp >= NOW() - INTERVAL 90 DAY;
+END //
+DELIMITER ;
+
+CALL fill_system_events(100000);
+CALL explain_system_events_queries();
+
+CALL fill_system_events(1000000);
+CALL explain_system_events_queries();
+
+CALL fill_system_events(10000000);
+CALL explain_system_events_queries();
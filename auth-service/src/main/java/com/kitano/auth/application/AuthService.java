@@ -1,23 +1,30 @@
 package com.kitano.auth.application;
 
-import com.kitano.auth.infrastructure.messaging.AuthProducer;
-import com.kitano.auth.infrastructure.repository.AuthEventJpaRepository;
+import com.kitano.auth.infrastructure.messaging.AuthEventRecorder;
+import com.kitano.auth.infrastructure.repository.BannedIpJpaRepository;
 import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
 import com.kitano.auth.infrastructure.security.JwtUtils;
+import com.kitano.auth.infrastructure.security.PasswordHashingRejectedException;
 import com.kitano.auth.infrastructure.security.PasswordService;
+import com.kitano.auth.infrastructure.security.UserPrincipalCache;
 import com.kitano.auth.model.HomelabUserCreateDTO;
 import com.kitano.auth.model.HomelabUserDTO;
 import com.kitano.auth.model.UserLoginDTO;
 import com.kitano.auth.model.UserMapper;
+import com.kitano.core.messaging.EventKeys;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.HomeLabUser;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.core.model.SystemException;
 import com.kitano.iface.model.KtxEvent;
 import com.kitano.iface.model.KtxRole;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,14 +33,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class for handling authentication-related operations.
  * <p>
  * This class provides methods for user login, registration, and logout.
- * It also handles event logging for authentication actions.
+ * It also handles event logging for authentication actions: events are handed to the
+ * {@link AuthEventRecorder}, which saves and publishes them in the background.
  */
 @Service
 public class AuthService {
@@ -41,67 +48,120 @@ public class AuthService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthService.class);
 
     private final AuthUserJpaRepository authUserJpaRepository;
-    private final AuthEventJpaRepository authEventJpaRepository;
+    private final BannedIpJpaRepository bannedIpRepository;
     private final PasswordService passwordService;
     private final JwtUtils jwtUtils;
-    private final AuthProducer producer;
+    private final AuthEventRecorder eventRecorder;
+    private final UserPrincipalCache principalCache;
+    private final Timer loginSucceeded;
+    private final Timer loginUnknownUser;
+    private final Timer loginBadCredentials;
+    private final Timer loginBanned;
+    private final Timer loginRejected;
+    private final Timer loginFailed;
+
+    /**
+     * How far back registrations look for a banned user behind the same IP address.
+     */
+    @Value("${auth.register.banned-ip-lookback-days:90}")
+    private int bannedIpLookbackDays = 90;
 
     public AuthService(AuthUserJpaRepository authUserJpaRepository,
-                       AuthEventJpaRepository authEventJpaRepository,
+                       BannedIpJpaRepository bannedIpRepository,
                        PasswordService passwordService,
                        JwtUtils jwtUtils,
-                       AuthProducer producer) {
+                       AuthEventRecorder eventRecorder,
+                       UserPrincipalCache principalCache,
+                       MeterRegistry meterRegistry) {
         this.authUserJpaRepository = authUserJpaRepository;
-        this.authEventJpaRepository = authEventJpaRepository;
+        this.bannedIpRepository = bannedIpRepository;
         this.passwordService = passwordService;
         this.jwtUtils = jwtUtils;
-        this.producer = producer;
+        this.eventRecorder = eventRecorder;
+        this.principalCache = principalCache;
+        this.loginSucceeded = loginTimer(meterRegistry, "success");
+        this.loginUnknownUser = loginTimer(meterRegistry, "unknown_user");
+        this.loginBadCredentials = loginTimer(meterRegistry, "bad_credentials");
+        this.loginBanned = loginTimer(meterRegistry, "banned");
+        this.loginRejected = loginTimer(meterRegistry, "rejected");
+        this.loginFailed = loginTimer(meterRegistry, "error");
+    }
+
+    private static Timer loginTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.login")
+                .description("Logins, password check included")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     /**
      * Logs in a user by validating their credentials and generating a JWT token.
+     * <p>
+     * Not transactional: no database connection is held while the password is checked.
+     * A password hashed with an outdated cost is rehashed in the background.
      *
      * @param loginRequest the login request containing username and password
      * @return a JWT token if login is successful
      * @throws SystemException if the user is not found or credentials are invalid
+     * @throws PasswordHashingRejectedException if too many passwords are being checked
      */
-
-    @Transactional
     public String login(UserLoginDTO loginRequest) throws SystemException {
-        LOGGER.info("Login attempt for user {}", loginRequest.getUsername());
+        long start = System.nanoTime();
+        Timer outcome = loginFailed;
+        try {
+            LOGGER.info("Login attempt for user {}", loginRequest.getUsername());
 
-        HomeLabUser user = authUserJpaRepository.findByUsername(loginRequest.getUsername());
+            HomeLabUser user = authUserJpaRepository.findByUsername(loginRequest.getUsername());
 
-        if (user == null) {
-            LOGGER.error("User not found: {}", loginRequest.getUsername());
-            logEvent(null, KtxEvent.EventType.AUTHENTICATION_FAILURE, "User not found", loginRequest.getIpAddress());
-            throw new SystemException("User not found");
-        }
+            if (user == null) {
+                LOGGER.error("User not found: {}", loginRequest.getUsername());
+                outcome = loginUnknownUser;
+                logEvent(null, KtxEvent.EventType.AUTHENTICATION_FAILURE, "User not found", loginRequest.getIpAddress());
+                throw new SystemException("User not found");
+            }
 
-        if (!passwordService.matches(loginRequest.getPassword(), user.getPassword())) {
-            LOGGER.error("Invalid credentials for user {}", loginRequest.getUsername());
-            logEvent(user, KtxEvent.EventType.AUTHENTICATION_FAILURE, "Bad credentials", loginRequest.getIpAddress());
-            throw new SystemException("Invalid credentials");
-        } else if (user.isBan()) {
-            LOGGER.error("User {} is banned", loginRequest.getUsername());
-            logEvent(user, KtxEvent.EventType.AUTHENTICATION_FAILURE, "User is banned", loginRequest.getIpAddress());
-            throw new SystemException("User is banned");
-        }
+            if (!passwordService.matches(loginRequest.getPassword(), user.getPassword())) {
+                LOGGER.error("Invalid credentials for user {}", loginRequest.getUsername());
+                outcome = loginBadCredentials;
+                logEvent(user, KtxEvent.EventType.AUTHENTICATION_FAILURE, "Bad credentials", loginRequest.getIpAddress());
+                throw new SystemException("Invalid credentials");
+            } else if (user.isBan()) {
+                LOGGER.error("User {} is banned", loginRequest.getUsername());
+                outcome = loginBanned;
+                bannedIpSeen(loginRequest.getIpAddress(), user.getId());
+                logEvent(user, KtxEvent.EventType.AUTHENTICATION_FAILURE, "User is banned", loginRequest.getIpAddress());
+                throw new SystemException("User is banned");
+            }
 
-        logEvent(user, KtxEvent.EventType.AUTHENTICATION_SUCCESS, "Login successful", loginRequest.getIpAddress());
+            if (passwordService.needsRehash(user.getPassword())) {
+                rehash(user, loginRequest.getPassword());
+            }
+
+            logEvent(user, KtxEvent.EventType.AUTHENTICATION_SUCCESS, "Login successful", loginRequest.getIpAddress());
 
-        LOGGER.info("User {} logged in", loginRequest.getUsername());
-        return jwtUtils.generateToken(UserMapper.toDto(user));
+            LOGGER.info("User {} logged in", loginRequest.getUsername());
+            String token = jwtUtils.generateToken(UserMapper.toDto(user));
+            outcome = loginSucceeded;
+            return token;
+        } catch (PasswordHashingRejectedException e) {
+            outcome = loginRejected;
+            throw e;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
      * Registers a new user by saving their credentials and generating an event.
+     * <p>
+     * Not transactional: the password is hashed once the checks are done, without holding
+     * a database connection, then the user is saved.
      *
      * @param dto the user creation DTO containing username and password
      * @return the registered user DTO
      * @throws SystemException if the username is already in use
+     * @throws PasswordHashingRejectedException if too many passwords are being hashed
      */
-    @Transactional
     public HomelabUserDTO register(HomelabUserCreateDTO dto) throws SystemException {
 
         LOGGER.info("Registering user {}", dto.getUsername());
@@ -111,27 +171,11 @@ public class AuthService {
             throw new SystemException("Username already in use");
         }
 
-        // Check if the IP address is already in use
-        // and if the user is banned
-        if (authEventJpaRepository.existsByIpAddress(dto.getIpAddress())) {
-
-            List<SystemEvent> events = authEventJpaRepository.findByIpAddress(dto.getIpAddress());
-            List<String> userId = events.stream()
-                    .map(SystemEvent::getUserId)
-                    .distinct()
-                    .toList();
-
-            if (!userId.isEmpty()) {
-                boolean isSuspicious = userId.stream().map(
-                        authUserJpaRepository::findById).filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .anyMatch(HomeLabUser::isBan);
-
-                if (isSuspicious) {
-                    LOGGER.error("IP address {} is already in use by a banned user", dto.getIpAddress());
-                    throw new SystemException("IP address already in use by a banned user");
-                }
-            }
+        // Check if the IP address was recently used by a banned user
+        if (dto.getIpAddress() != null && bannedIpRepository.existsByIpAddressAndLastSeenGreaterThanEqual(
+                dto.getIpAddress(), LocalDateTime.now().minusDays(bannedIpLookbackDays))) {
+            LOGGER.error("IP address {} is already in use by a banned user", dto.getIpAddress());
+            throw new SystemException("IP address already in use by a banned user");
         }
 
         HomeLabUser user = new HomeLabUser();
@@ -141,6 +185,7 @@ public class AuthService {
         user.setCreated(LocalDateTime.now());
 
         HomeLabUser saved = authUserJpaRepository.save(user);
+        principalCache.invalidate(saved.getUsername());
 
         logEvent(saved, KtxEvent.EventType.USER_ACTION, "User created", dto.getIpAddress());
 
@@ -148,6 +193,39 @@ public class AuthService {
         return UserMapper.toDto(saved);
     }
 
+    /**
+     * Replaces the password hash of the user by one of the configured cost, in the background.
+     * Failures are only logged, the user keeps the previous hash.
+     */
+    private void rehash(HomeLabUser user, String rawPassword) {
+        String previous = user.getPassword();
+        try {
+            passwordService.hashAsync(rawPassword)
+                    .thenAccept(hash -> authUserJpaRepository.updatePassword(user.getId(), previous, hash))
+                    .exceptionally(e -> {
+                        LOGGER.warn("Cannot rehash the password of user {}: {}", user.getUsername(), e.getMessage());
+                        return null;
+                    });
+        } catch (PasswordHashingRejectedException e) {
+            LOGGER.debug("Rehash of the password of user {} postponed: {}", user.getUsername(), e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps the IP addresses of banned users indexed as they keep trying to log in.
+     * Failures are only logged, the login is refused anyway.
+     */
+    private void bannedIpSeen(String ip, String userId) {
+        if (ip == null) {
+            return;
+        }
+        try {
+            bannedIpRepository.seen(ip, userId, LocalDateTime.now());
+        } catch (Exception e) {
+            LOGGER.warn("Cannot index IP address {} of banned user {}: {}", ip, userId, e.getMessage());
+        }
+    }
+
     /**
      * Logs out the user by invalidating the JWT token and clearing the authentication context.
      *
@@ -193,17 +271,18 @@ public class AuthService {
     }
 
     /**
-     * Logs an event related to authentication actions.
+     * Logs an event related to authentication actions. Events logged within a transaction
+     * are only relayed once it commits, authentication failures whatever its outcome.
+     * The event starts its {@link EventTrace}, so the alerts it raises can be timed from here.
      *
      * @param user    the user associated with the event
      * @param type    the type of event
      * @param message the message describing the event
      * @param ip      the IP address of the user
      */
-
     private void logEvent(HomeLabUser user, KtxEvent.EventType type, String message, String ip) {
         SystemEvent event = SystemEvent.builder()
-                .userId(user != null ? user.getId() : "unknown user")
+                .userId(user != null ? user.getId() : EventKeys.UNKNOWN_USER)
                 .eventType(type)
                 .message(message)
                 .criticality(KtxEvent.Criticality.REGULAR)
@@ -211,15 +290,15 @@ public class AuthService {
                 .ipAddress(ip)
                 .source("auth-service")
                 .timestamp(LocalDateTime.now())
-                .version(0L)
+                .trace(EventTrace.start())
                 .build();
-        LOGGER.debug("Sending event: {}", event);
-        producer.sendEvent(event);
-        authEventJpaRepository.save(event);
+        LOGGER.debug("Recording event: {}", event);
+        eventRecorder.record(event);
     }
 
     /**
-     * Bans a user by setting their status to banned.
+     * Bans a user by setting their status to banned. The IP addresses the user was seen
+     * behind within the lookback period are indexed, registrations from them are refused.
      *
      * @param userId the ID of the user to ban
      * @throws SystemException if the user is not found
@@ -231,6 +310,8 @@ public class AuthService {
                 .orElseThrow(() -> new SystemException("User not found"));
         user.setBan(true);
         authUserJpaRepository.save(user);
+        bannedIpRepository.indexUser(user.getId(), LocalDateTime.now().minusDays(bannedIpLookbackDays));
+        principalCache.invalidate(user.getUsername());
         logEvent(user, KtxEvent.EventType.USER_ACTION, "User banned", user.getUsername());
         LOGGER.info("User {} banned", userId);
     }
@@ -248,6 +329,8 @@ public class AuthService {
                 .orElseThrow(() -> new SystemException("User not found"));
         user.setBan(false);
         authUserJpaRepository.save(user);
+        bannedIpRepository.deleteByUserId(user.getId());
+        principalCache.invalidate(user.getUsername());
         logEvent(user, KtxEvent.EventType.USER_ACTION, "User unbanned", user.getUsername());
         LOGGER.info("User {} unbanned", userId);
     }
@@ -0,0 +1,79 @@
+package com.kitano.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the relay recording authentication events, see
+ * {@link com.kitano.auth.infrastructure.messaging.AuthEventRecorder}.
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.events")
+public class EventRelayProperties {
+
+    /**
+     * Whether events are queued and relayed in the background. When disabled, events are
+     * saved and sent to Kafka by the calling thread.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Max number of events waiting to be relayed, further ones are dropped.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Max number of events saved in one batch.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Max time in milliseconds a queued event waits for its batch to fill up.
+     */
+    private long maxLatencyMillis = 50;
+
+    /**
+     * Max time in milliseconds given to the relay to flush the queue on shutdown.
+     */
+    private long shutdownTimeoutMillis = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public void setMaxLatencyMillis(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+}
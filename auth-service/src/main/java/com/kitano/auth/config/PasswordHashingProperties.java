@@ -0,0 +1,66 @@
+package com.kitano.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of password hashing.
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.password")
+public class PasswordHashingProperties {
+
+    /**
+     * BCrypt cost (log2 rounds). Passwords hashed with another cost are rehashed on login.
+     */
+    private int bcryptStrength = 10;
+
+    /**
+     * Number of threads hashing passwords, BCrypt being CPU bound.
+     */
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Max number of hashes waiting for a thread, further ones are rejected right away.
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * Max time a request waits for its hash, queueing included.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public int getBcryptStrength() {
+        return bcryptStrength;
+    }
+
+    public void setBcryptStrength(int bcryptStrength) {
+        this.bcryptStrength = bcryptStrength;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kitano.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the login and registration rate limiter.
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Whether logins and registrations are rate limited.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Burst of attempts allowed from one IP address.
+     */
+    private int ipCapacity = 20;
+
+    /**
+     * Attempts per minute regained by one IP address.
+     */
+    private int ipRefillPerMinute = 20;
+
+    /**
+     * Burst of login attempts allowed on one username.
+     */
+    private int usernameCapacity = 5;
+
+    /**
+     * Login attempts per minute regained by one username.
+     */
+    private int usernameRefillPerMinute = 5;
+
+    /**
+     * Max number of IP addresses and of usernames tracked, the least recently seen are evicted.
+     */
+    private int maxTrackedKeys = 100_000;
+
+    /**
+     * How much slower IP addresses reported by security-service regain attempts.
+     */
+    private int penaltyFactor = 10;
+
+    /**
+     * How long IP addresses reported by security-service are throttled harder.
+     */
+    private Duration penaltyDuration = Duration.ofMinutes(15);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getIpCapacity() {
+        return ipCapacity;
+    }
+
+    public void setIpCapacity(int ipCapacity) {
+        this.ipCapacity = ipCapacity;
+    }
+
+    public int getIpRefillPerMinute() {
+        return ipRefillPerMinute;
+    }
+
+    public void setIpRefillPerMinute(int ipRefillPerMinute) {
+        this.ipRefillPerMinute = ipRefillPerMinute;
+    }
+
+    public int getUsernameCapacity() {
+        return usernameCapacity;
+    }
+
+    public void setUsernameCapacity(int usernameCapacity) {
+        this.usernameCapacity = usernameCapacity;
+    }
+
+    public int getUsernameRefillPerMinute() {
+        return usernameRefillPerMinute;
+    }
+
+    public void setUsernameRefillPerMinute(int usernameRefillPerMinute) {
+        this.usernameRefillPerMinute = usernameRefillPerMinute;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public int getPenaltyFactor() {
+        return penaltyFactor;
+    }
+
+    public void setPenaltyFactor(int penaltyFactor) {
+        this.penaltyFactor = penaltyFactor;
+    }
+
+    public Duration getPenaltyDuration() {
+        return penaltyDuration;
+    }
+
+    public void setPenaltyDuration(Duration penaltyDuration) {
+        this.penaltyDuration = penaltyDuration;
+    }
+}
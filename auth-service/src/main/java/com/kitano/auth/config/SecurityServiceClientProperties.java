@@ -0,0 +1,145 @@
+package com.kitano.auth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP client of security-service.
+ */
+@Component
+@ConfigurationProperties(prefix = "services.security")
+public class SecurityServiceClientProperties {
+
+    /**
+     * Base URL of security-service.
+     */
+    private String baseUrl = "http://localhost:8081";
+
+    /**
+     * Max time to open a connection.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Max time without receiving data from a response, until the headers and between two
+     * reads of the body, so that long streams are not cut while they make progress.
+     */
+    private Duration responseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Max number of pooled connections.
+     */
+    private int maxConnections = 50;
+
+    /**
+     * Max time to wait for a pooled connection.
+     */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Time after which idle pooled connections are closed.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * Failure rate in percent above which the circuit breaker opens.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Number of calls the failure rate is computed on.
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Min number of calls before the failure rate is computed.
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Time the circuit breaker stays open before letting trial calls through.
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(Duration responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Duration getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
+
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public Duration getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+
+    public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+        this.waitDurationInOpenState = waitDurationInOpenState;
+    }
+}
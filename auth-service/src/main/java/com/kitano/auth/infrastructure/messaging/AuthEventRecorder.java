@@ -0,0 +1,174 @@
+package com.kitano.auth.infrastructure.messaging;
+
+import com.kitano.auth.config.EventRelayProperties;
+import com.kitano.auth.infrastructure.repository.AuthEventJpaRepository;
+import com.kitano.core.concurrent.BatchingQueue;
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.model.KtxEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records authentication events without making the caller wait for the database or Kafka.
+ * <p>
+ * Recording only appends the event to a bounded {@link BatchingQueue}. A single background
+ * relay drains it by batches of at most {@link EventRelayProperties#getBatchSize()} events, saves
+ * each batch in one transaction, then sends its events to Kafka. A batch is relayed as soon
+ * as it is full or once its first event waited {@link EventRelayProperties#getMaxLatencyMillis()}.
+ * The queue is flushed on shutdown.
+ * <p>
+ * When a batch cannot be saved, its events are saved one by one, so that one bad event does
+ * not keep the others out of the audit table. Events that still cannot be saved are counted
+ * and sent anyway, the security service relying on them: Kafka may carry events missing
+ * from the audit table, but not the other way around.
+ * <p>
+ * An event recorded within a transaction is queued once the transaction completes: after
+ * commit, or also after rollback for authentication failures, which describe an attempt
+ * rather than a change of the transaction. Recording never blocks: when the queue is full,
+ * the event is dropped and counted.
+ */
+@Component
+public class AuthEventRecorder implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthEventRecorder.class);
+
+    private final AuthEventJpaRepository eventRepository;
+    private final AuthProducer producer;
+    private final EventRelayProperties properties;
+    private final BatchingQueue<SystemEvent> queue;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder unsaved = new LongAdder();
+
+    public AuthEventRecorder(AuthEventJpaRepository eventRepository, AuthProducer producer,
+                             EventRelayProperties properties) {
+        this.eventRepository = eventRepository;
+        this.producer = producer;
+        this.properties = properties;
+        this.queue = new BatchingQueue<>("auth-event-relay", properties.getQueueCapacity(),
+                properties.getBatchSize(), properties.getMaxLatencyMillis(), this::relay);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            queue.start();
+        }
+    }
+
+    /**
+     * Stops the relay and waits for the queued events to be relayed.
+     */
+    @PreDestroy
+    public void stop() {
+        queue.stop(properties.getShutdownTimeoutMillis());
+    }
+
+    /**
+     * Records the given event, see the class documentation for when it is relayed.
+     *
+     * @param event the event to record
+     */
+    public void record(SystemEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED
+                        || event.getEventType() == KtxEvent.EventType.AUTHENTICATION_FAILURE) {
+                    enqueue(event);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of events waiting to be relayed
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full or the relay stopped
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of events sent without being saved
+     */
+    public long unsaved() {
+        return unsaved.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.events.pending", this, AuthEventRecorder::pending)
+                .description("Events waiting to be relayed")
+                .register(registry);
+        FunctionCounter.builder("auth.events.dropped", this, AuthEventRecorder::dropped)
+                .description("Events dropped because the relay queue was full or stopped")
+                .register(registry);
+        FunctionCounter.builder("auth.events.unsaved", this, AuthEventRecorder::unsaved)
+                .description("Events sent to Kafka without being saved in the audit table")
+                .register(registry);
+    }
+
+    private void enqueue(SystemEvent event) {
+        if (!properties.isEnabled()) {
+            relay(List.of(event));
+            return;
+        }
+        if (!queue.offer(event)) {
+            dropped.increment();
+            LOGGER.warn("Event relay {}, dropping event: {}", queue.isRunning() ? "queue is full" : "is stopped", event);
+        }
+    }
+
+    /**
+     * Saves then sends the given events, see the class documentation for the events that
+     * cannot be saved.
+     */
+    private void relay(List<SystemEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            eventRepository.saveAll(events);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to save {} events, saving them one by one: {}", events.size(), e.getMessage());
+            for (SystemEvent event : events) {
+                save(event);
+            }
+        }
+        for (SystemEvent event : events) {
+            producer.sendEvent(event);
+        }
+    }
+
+    private void save(SystemEvent event) {
+        try {
+            eventRepository.save(event);
+        } catch (Exception e) {
+            unsaved.increment();
+            LOGGER.error("Failed to save event {}: {}", event, e.getMessage());
+        }
+    }
+}
@@ -1,30 +1,72 @@
 package com.kitano.auth.infrastructure.messaging;
 
+import com.kitano.core.messaging.EventKeys;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.SystemEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 @Component
 public class AuthProducer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthProducer.class);
     private static final String TOPIC = "auth-events";
     private final KafkaTemplate<String, SystemEvent> kafka;
+    private final boolean keyFallbackToIp;
+    private final Timer sent;
+    private final Timer failed;
 
-    public AuthProducer(KafkaTemplate<String, SystemEvent> kafka) {
+    @Autowired
+    public AuthProducer(KafkaTemplate<String, SystemEvent> kafka,
+                        @Value("${kafka.key.fallback-to-ip:true}") boolean keyFallbackToIp,
+                        MeterRegistry meterRegistry) {
         this.kafka = kafka;
+        this.keyFallbackToIp = keyFallbackToIp;
+        this.sent = sendTimer(meterRegistry, "success");
+        this.failed = sendTimer(meterRegistry, "failure");
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("events.send")
+                .description("Time from handing an event to Kafka to its acknowledgement")
+                .tag("topic", TOPIC)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
+    /**
+     * Sends the event keyed by user id, see {@link EventKeys}, with the headers of its
+     * {@link EventTrace} if any. The send latency is recorded once Kafka acknowledges the event.
+     *
+     * @param event the event to send
+     * @return true if the event was handed to Kafka
+     */
     public boolean sendEvent(SystemEvent event) {
+        long start = System.nanoTime();
         try {
-            kafka.send(TOPIC, event);
+            ProducerRecord<String, SystemEvent> record =
+                    new ProducerRecord<>(TOPIC, EventKeys.keyOf(event, keyFallbackToIp), event);
+            if (event.getTrace() != null) {
+                event.getTrace().writeTo(record.headers());
+            }
+            kafka.send(record)
+                    .whenComplete((result, e) -> (e == null ? sent : failed)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
             LOGGER.info("Event sent to Kafka: {}", event);
             return true;
         } catch (Exception e) {
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             LOGGER.error("Failed to send event to Kafka", e);
             return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.kitano.auth.infrastructure.messaging;
+
+import com.kitano.auth.infrastructure.security.LoginRateLimiter;
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throttles the IP addresses behind the alerts raised by security-service.
+ * <p>
+ * Every instance must see every alert, so each one consumes security-events in its own
+ * consumer group, from the latest offset. Alerts are only read, never stored, so they are
+ * consumed as {@link KtxEventRecord}.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.rate-limit.alerts.enabled", havingValue = "true")
+public class SecurityAlertListener {
+
+    private final LoginRateLimiter rateLimiter;
+
+    public SecurityAlertListener(LoginRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @KafkaListener(topics = "security-events",
+            groupId = "${auth.rate-limit.alerts.group-id}",
+            properties = "auto.offset.reset=latest")
+    public void onAlert(KtxEventRecord alert) {
+        KtxEvent.EventType type = alert.eventType();
+        if (type == KtxEvent.EventType.UNUSUAL_BEHAVIOR || type == KtxEvent.EventType.SECURITY) {
+            rateLimiter.penalizeIp(alert.ipAddress());
+        }
+    }
+}
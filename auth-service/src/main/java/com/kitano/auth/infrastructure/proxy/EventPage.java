@@ -0,0 +1,14 @@
+package com.kitano.auth.infrastructure.proxy;
+
+import com.kitano.core.model.SystemEvent;
+
+import java.util.List;
+
+/**
+ * A page of events read from security-service.
+ *
+ * @param events the events of the page, the most recent first
+ * @param next   the cursor of the next page, null if there is none
+ */
+public record EventPage(List<SystemEvent> events, String next) {
+}
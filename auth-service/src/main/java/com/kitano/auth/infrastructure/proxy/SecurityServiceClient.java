@@ -1,38 +1,121 @@
 package com.kitano.auth.infrastructure.proxy;
 
+import com.kitano.auth.config.SecurityServiceClientProperties;
 import com.kitano.core.model.SystemEvent;
-import org.springframework.beans.factory.annotation.Value;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.netty.channel.ChannelOption;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Non-blocking client of the security-service event API.
+ * <p>
+ * Events are never collected in memory: pages are bounded by security-service and streams
+ * are handed to the caller event by event, at the pace the caller consumes them. Calls share
+ * a pool of connections, time out when security-service stops answering, and fail fast with
+ * a {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException} while the circuit
+ * breaker is open.
+ */
 @Component
 public class SecurityServiceClient {
 
+    /**
+     * Response header of security-service holding the cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
 
-    public SecurityServiceClient(@Value("${services.security.base-url}") String baseUrl) {
+    public SecurityServiceClient(SecurityServiceClientProperties properties) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("security-service")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout());
         this.webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+                .baseUrl(properties.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
+        this.circuitBreaker = CircuitBreaker.of("security-service", CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .build());
     }
 
-    public List<SystemEvent> getEventsForUser(String userId) {
+    /**
+     * Streams the events of a user.
+     *
+     * @param userId the user id
+     * @return the events, decoded as they are received
+     */
+    public Flux<SystemEvent> getEventsForUser(String userId) {
         return webClient.get()
                 .uri("/api/events/{id}/events", userId)
+                .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
                 .bodyToFlux(SystemEvent.class)
-                .collectList()
-                .block(); // or return Mono<List<SystemEvent>> for async support
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Reads a page of events, the most recent first.
+     *
+     * @param limit the max number of events of the page
+     * @param after the cursor of the previous page, null for the first page
+     * @return the page
+     */
+    public Mono<EventPage> getEventsPage(int limit, String after) {
+        return webClient.get()
+                .uri(builder -> builder.path("/api/events/all")
+                        .queryParam("limit", limit)
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toEntityList(SystemEvent.class)
+                .map(entity -> new EventPage(entity.getBody() != null ? entity.getBody() : List.of(),
+                        entity.getHeaders().getFirst(NEXT_CURSOR_HEADER)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
     }
 
-    public List<SystemEvent> getAllEvents() {
+    /**
+     * Streams the events of a time range, the most recent first.
+     *
+     * @param from the lower bound of the time range, security-service's lookback period if null
+     * @param to   the upper bound of the time range, now if null
+     * @return the events, decoded as they are received
+     */
+    public Flux<SystemEvent> streamEvents(LocalDateTime from, LocalDateTime to) {
         return webClient.get()
-                .uri("/api/events/all")
+                .uri(builder -> builder.path("/api/events/stream")
+                        .queryParamIfPresent("from", Optional.ofNullable(from))
+                        .queryParamIfPresent("to", Optional.ofNullable(to))
+                        .build())
+                .accept(MediaType.APPLICATION_NDJSON)
                 .retrieve()
                 .bodyToFlux(SystemEvent.class)
-                .collectList()
-                .block(); // or return Mono<List<SystemEvent>> for async support
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
     }
-}
\ No newline at end of file
+}
@@ -5,13 +5,9 @@ import com.kitano.core.model.SystemEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.UUID;
 
 @Repository
-public interface AuthEventJpaRepository extends JpaRepository<SystemEvent, String> {
-
-    boolean existsByIpAddress(String ipAddress);
-
-    List<SystemEvent> findByIpAddress(String ipAddress);
+public interface AuthEventJpaRepository extends JpaRepository<SystemEvent, UUID> {
 
 }
@@ -2,7 +2,11 @@ package com.kitano.auth.infrastructure.repository;
 
 import com.kitano.core.model.HomeLabUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface AuthUserJpaRepository extends JpaRepository<HomeLabUser, String> {
@@ -11,4 +15,14 @@ public interface AuthUserJpaRepository extends JpaRepository<HomeLabUser, String
 
     boolean existsByUsername(String username);
 
+    /**
+     * Replaces the password hash of a user, unless it changed since it was read.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE HomeLabUser u SET u.password = :password WHERE u.id = :id AND u.password = :previous")
+    int updatePassword(@Param("id") String id,
+                       @Param("previous") String previous,
+                       @Param("password") String password);
+
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.kitano.auth.infrastructure.repository;
+
+import com.kitano.auth.model.BannedIp;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BannedIpJpaRepository extends JpaRepository<BannedIp, BannedIp.Key> {
+
+    /**
+     * Primary key lookup on {@code ip_address}, which only holds the rows of banned users.
+     */
+    boolean existsByIpAddressAndLastSeenGreaterThanEqual(String ipAddress, LocalDateTime since);
+
+    /**
+     * Indexes the IP addresses of the events of a user since the given date, through
+     * {@code idx_system_events_user_timestamp}.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO banned_ips (ip_address, user_id, last_seen) "
+            + "SELECT s.ip_address, s.user_id, s.last_seen FROM ("
+            + "SELECT ip_address, user_id, MAX(timestamp) AS last_seen FROM system_events "
+            + "WHERE user_id = :userId AND timestamp >= :since GROUP BY ip_address, user_id) s "
+            + "ON DUPLICATE KEY UPDATE last_seen = GREATEST(banned_ips.last_seen, s.last_seen)", nativeQuery = true)
+    int indexUser(@Param("userId") String userId, @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO banned_ips (ip_address, user_id, last_seen) VALUES (:ipAddress, :userId, :seen) "
+            + "ON DUPLICATE KEY UPDATE last_seen = GREATEST(last_seen, :seen)", nativeQuery = true)
+    int seen(@Param("ipAddress") String ipAddress, @Param("userId") String userId, @Param("seen") LocalDateTime seen);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BannedIp b WHERE b.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+}
@@ -0,0 +1,39 @@
+package com.kitano.auth.infrastructure.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TokenRevocationStore} local to the JVM, for a single instance deployment
+ * ({@code jwt.revocation.store=memory}). Revocations are lost on restart.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "memory")
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private final Map<UUID, TokenRevocation> revocations = new ConcurrentHashMap<>();
+
+    @Override
+    public void revoke(UUID tokenId, long expiresAt, long revokedAt) {
+        revocations.putIfAbsent(tokenId, new TokenRevocation(tokenId, expiresAt, revokedAt));
+    }
+
+    @Override
+    public List<TokenRevocation> findRevokedSince(long since, long now) {
+        return revocations.values().stream()
+                .filter(revocation -> revocation.revokedAt() >= since && revocation.expiresAt() > now)
+                .toList();
+    }
+
+    @Override
+    public int deleteExpired(long now) {
+        int before = revocations.size();
+        revocations.values().removeIf(revocation -> revocation.expiresAt() <= now);
+        return before - revocations.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.kitano.auth.infrastructure.repository;
+
+import com.kitano.auth.model.RevokedToken;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link TokenRevocationStore} backed by the {@code revoked_tokens} table of the shared
+ * database, the default. Every instance polls the table for the revocations of the others.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaTokenRevocationStore implements TokenRevocationStore {
+
+    private final RevokedTokenJpaRepository repository;
+
+    public JpaTokenRevocationStore(RevokedTokenJpaRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void revoke(UUID tokenId, long expiresAt, long revokedAt) {
+        repository.insertIgnore(toBytes(tokenId), expiresAt, revokedAt);
+    }
+
+    @Override
+    public List<TokenRevocation> findRevokedSince(long since, long now) {
+        return repository.findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(since, now).stream()
+                .map(JpaTokenRevocationStore::toRevocation)
+                .toList();
+    }
+
+    @Override
+    public int deleteExpired(long now) {
+        return repository.deleteExpired(now);
+    }
+
+    private static TokenRevocation toRevocation(RevokedToken token) {
+        return new TokenRevocation(token.getTokenId(), token.getExpiresAt(), token.getRevokedAt());
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
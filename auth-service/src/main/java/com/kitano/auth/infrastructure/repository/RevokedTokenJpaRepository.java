@@ -0,0 +1,37 @@
+package com.kitano.auth.infrastructure.repository;
+
+import com.kitano.auth.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenJpaRepository extends JpaRepository<RevokedToken, UUID> {
+
+    /**
+     * Single round trip insert, a token revoked twice (by two instances) is kept once.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO revoked_tokens (token_id, expires_at, revoked_at) "
+            + "VALUES (:tokenId, :expiresAt, :revokedAt)", nativeQuery = true)
+    int insertIgnore(@Param("tokenId") byte[] tokenId,
+                     @Param("expiresAt") long expiresAt,
+                     @Param("revokedAt") long revokedAt);
+
+    /**
+     * Range scan of {@code idx_revoked_tokens_revoked_at}.
+     */
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(long revokedSince, long now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") long now);
+}
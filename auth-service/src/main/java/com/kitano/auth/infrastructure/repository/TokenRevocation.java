@@ -0,0 +1,13 @@
+package com.kitano.auth.infrastructure.repository;
+
+import java.util.UUID;
+
+/**
+ * A revoked token as recorded by a {@link TokenRevocationStore}.
+ *
+ * @param tokenId   the {@code jti} of the token
+ * @param expiresAt the expiration of the token in milliseconds
+ * @param revokedAt the time of the revocation in milliseconds
+ */
+public record TokenRevocation(UUID tokenId, long expiresAt, long revokedAt) {
+}
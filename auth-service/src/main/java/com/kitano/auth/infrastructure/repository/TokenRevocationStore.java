@@ -0,0 +1,40 @@
+package com.kitano.auth.infrastructure.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Store of revoked tokens, the source of truth behind the local blacklist of each instance.
+ * <p>
+ * Instances record their own revocations here and periodically pull the revocations of
+ * the others, so a token logged out on one instance is rejected by all of them, and
+ * revocations survive restarts.
+ */
+public interface TokenRevocationStore {
+
+    /**
+     * Records the revocation of a token. Revoking a token twice has no effect.
+     *
+     * @param tokenId   the {@code jti} of the token
+     * @param expiresAt the expiration of the token in milliseconds
+     * @param revokedAt the time of the revocation in milliseconds
+     */
+    void revoke(UUID tokenId, long expiresAt, long revokedAt);
+
+    /**
+     * Finds the revocations recorded since the given time, of tokens not expired yet.
+     *
+     * @param since the lower bound of the revocation time in milliseconds, included
+     * @param now   the current time in milliseconds
+     * @return the revocations, in no particular order
+     */
+    List<TokenRevocation> findRevokedSince(long since, long now);
+
+    /**
+     * Deletes the revocations of expired tokens.
+     *
+     * @param now the current time in milliseconds
+     * @return the number of deleted revocations
+     */
+    int deleteExpired(long now);
+}
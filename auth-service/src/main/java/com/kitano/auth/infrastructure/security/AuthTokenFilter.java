@@ -1,93 +0,0 @@
-package com.kitano.auth.infrastructure.security;
-
-import io.jsonwebtoken.ExpiredJwtException;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
-import org.springframework.web.filter.OncePerRequestFilter;
-
-import java.io.IOException;
-
-/**
- * This class is a filter that checks for JWT tokens in incoming requests.
- * It validates the token and sets the authentication in the security context.
- * It extends OncePerRequestFilter to ensure it is executed once per request.
- */
-@Component
-public class AuthTokenFilter extends OncePerRequestFilter {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(AuthTokenFilter.class);
-
-    @Autowired
-    private JwtUtils jwtUtils;
-
-    @Autowired
-    private UserDetailsServiceImpl userDetailsService;
-
-    /**
-     * This method is called for every request to check if the user is authenticated.
-     * It extracts the JWT token from the request and validates it.
-     *
-     * @param request     The HttpServletRequest object.
-     * @param response    The HttpServletResponse object.
-     * @param filterChain The FilterChain object.
-     * @throws ServletException If a servlet error occurs.
-     * @throws IOException      If an I/O error occurs.
-     */
-    @Override
-    protected void doFilterInternal(HttpServletRequest request,
-                                    HttpServletResponse response,
-                                    FilterChain filterChain) throws ServletException, IOException {
-        try {
-            String jwt = parseJwt(request);
-
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUsernameFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities());
-
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
-
-        } catch (ExpiredJwtException e) {
-            LOGGER.warn("JWT token expired: {}", e.getMessage());
-        } catch (Exception e) {
-            LOGGER.error("Cannot set user authentication: {}", e.getMessage(), e);
-        }
-
-        filterChain.doFilter(request, response);
-    }
-
-    /**
-     * Parses the JWT from the Authorization header.
-     *
-     * @param request The HttpServletRequest object.
-     * @return The JWT token if present, null otherwise.
-     */
-    private String parseJwt(HttpServletRequest request) {
-        String headerAuth = request.getHeader("Authorization");
-
-        if (headerAuth != null && headerAuth.startsWith("Bearer ")) {
-            return headerAuth.substring(7);
-        }
-
-        return null;
-    }
-}
\ No newline at end of file
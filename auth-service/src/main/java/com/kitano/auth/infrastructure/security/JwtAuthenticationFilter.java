@@ -1,36 +1,52 @@
 package com.kitano.auth.infrastructure.security;
 
-import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
-import com.kitano.core.model.HomeLabUser;
+import com.kitano.iface.model.KtxRole;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
 
 /**
- * This class is a filter that checks for JWT tokens in incoming requests.
+ * This class is the only filter that authenticates requests from their JWT token.
  * It validates the token and sets the authentication in the security context.
  * It extends OncePerRequestFilter to ensure it is executed once per request.
+ * <p>
+ * A request with a token costs one header lookup, one token validation (served from the
+ * verified token cache for known tokens) and one principal lookup (served from the
+ * {@link UserPrincipalCache}, for the ban status). The authorities come from the role claim
+ * of the token and are shared per {@link KtxRole}, and error bodies are encoded once, so the
+ * filter allocates little beyond the authentication itself.
  */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final byte[] TOKEN_INVALIDATED = error("Token has been invalidated. ");
+    private static final byte[] TOKEN_INVALID = error("Invalid or expired token");
+    private static final byte[] USER_BANNED = error("User is banned");
+
     private final JwtUtils jwtUtils;
-    private final AuthUserJpaRepository userRepository;
+    private final UserPrincipalCache principalCache;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, AuthUserJpaRepository userRepository) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserPrincipalCache principalCache) {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     /**
      * This method is called for every request to check if the user is authenticated.
-     * It extracts the JWT token from the request and validates it.
+     * It extracts the JWT token from the request and validates it. Requests without a
+     * token go through unauthenticated, requests with an invalid token are rejected.
      *
      * @param request     The HttpServletRequest object.
      * @param response    The HttpServletResponse object.
@@ -43,33 +59,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain)
             throws ServletException, IOException {
-        System.out.println("JwtAuthenticationFilter triggered for: " + request.getRequestURI());
         String token = extractToken(request);
+        if (token == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        // Validate the token and set the authentication in the context
-        if (token != null) {
-            if (jwtUtils.isBlacklisted(token)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json");
-                response.getWriter().write("{\"error\": \"Token has been invalidated. \"}");
-                return;
-            }
+        Claims claims = jwtUtils.validateAndParse(token);
+        if (claims == null) {
+            // only the rejected requests pay for telling the reason apart
+            reject(response, jwtUtils.isBlacklisted(token) ? TOKEN_INVALIDATED : TOKEN_INVALID);
+            return;
+        }
 
-            if (jwtUtils.validateToken(token)) {
-                String username = jwtUtils.getUsernameFromToken(token);
-                HomeLabUser user = userRepository.findByUsername(username);
-                if (user != null) {
-                    var auth = new UsernamePasswordAuthenticationToken(
-                            username, null, Collections.emptyList()
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
-            } else {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json");
-                response.getWriter().write("{\"error\": \"Invalid or expired token\"}");
-                return;
-            }
+        UserPrincipal user = principalCache.get(claims.getSubject());
+        if (user != null && user.banned()) {
+            reject(response, USER_BANNED);
+            return;
+        }
+        if (user != null) {
+            // tokens issued before the role claim fall back to the role of the cached user
+            KtxRole role = RoleAuthorities.parse(claims.get(JwtUtils.CLAIM_ROLE, String.class));
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    user.username(), null, RoleAuthorities.of(role != null ? role : user.role())));
+            SecurityContextHolder.setContext(context);
         }
 
         filterChain.doFilter(request, response);
@@ -84,11 +98,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      * @param request The HttpServletRequest object.
      * @return The JWT token if present, null otherwise.
      */
-    private String extractToken(HttpServletRequest request) {
-        String header = request.getHeader("Authorization");
-        if (header != null && header.startsWith("Bearer ")) {
-            return header.substring(7);
+    private static String extractToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return header.substring(BEARER_PREFIX.length());
         }
         return null;
     }
-}
\ No newline at end of file
+
+    private static void reject(HttpServletResponse response, byte[] body) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] error(String message) {
+        return ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
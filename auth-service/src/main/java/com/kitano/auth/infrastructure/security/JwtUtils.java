@@ -1,11 +1,20 @@
 package com.kitano.auth.infrastructure.security;
 
+import com.kitano.auth.infrastructure.repository.TokenRevocation;
+import com.kitano.auth.infrastructure.repository.TokenRevocationStore;
 import com.kitano.auth.model.HomelabUserDTO;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,33 +22,96 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for generating and validating JWT tokens.
  * It uses a secret key to sign the tokens and provides methods to check their validity.
  * The class also manages a blacklist of tokens that have been invalidated.
+ * <p>
+ * Tokens are verified by a single parser built at startup, and the claims of verified tokens
+ * are kept in a {@link VerifiedTokenCache} so that hot tokens skip the signature verification
+ * until they expire or are blacklisted. Every token carries a random {@code jti}: the
+ * {@link TokenBlacklist} only holds that identifier, until the real expiration of the token.
+ * <p>
+ * The blacklist is a near-cache of the shared {@link TokenRevocationStore}: revocations are
+ * written through to the store and the revocations of the other instances are pulled every
+ * {@code jwt.revocation.poll-millis}, so the per request check never leaves the JVM.
  */
 @Component
 public class JwtUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtUtils.class);
+
+    /**
+     * Claim holding the id of the user.
+     */
+    public static final String CLAIM_USER_ID = "uid";
+
+    /**
+     * Claim holding the {@link com.kitano.iface.model.KtxRole} of the user.
+     */
+    public static final String CLAIM_ROLE = "role";
+
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private final Set<String> blacklist = ConcurrentHashMap.newKeySet();
-    private final Map<String, Long> expirationMap = new ConcurrentHashMap<>();
+    private final TokenRevocationStore revocationStore;
     @Value("${jwt.secret:homelabSecretKey12345678901234567890}")
     private String jwtSecret;
     @Value("${jwt.expirationMs:3600000}") // 1 hour
     private long jwtExpirationMs;
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize = 10000;
+    @Value("${jwt.blacklist.expected-size:100000}")
+    private int blacklistExpectedSize = 100000;
+    @Value("${jwt.blacklist.false-positive-rate:0.01}")
+    private double blacklistFalsePositiveRate = 0.01;
+    @Value("${jwt.blacklist.tick-millis:1000}")
+    private long blacklistTickMillis = 1000;
+    @Value("${jwt.blacklist.wheel-size:4096}")
+    private int blacklistWheelSize = 4096;
+    @Value("${jwt.revocation.poll-millis:1000}")
+    private long revocationPollMillis = 1000;
+    // revocations are polled again over that window, covering late commits and clock skew
+    @Value("${jwt.revocation.overlap-millis:5000}")
+    private long revocationOverlapMillis = 5000;
+    @Value("${jwt.revocation.purge-interval-millis:600000}")
+    private long revocationPurgeIntervalMillis = 600000;
     private SecretKey key;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+    private TokenBlacklist blacklist;
+    private volatile long syncedUntil = Long.MIN_VALUE;
+
+    private final Timer validTokens;
+    private final Timer invalidTokens;
+    private final Timer expiredTokens;
+    private final Timer revokedTokens;
+
+    public JwtUtils(TokenRevocationStore revocationStore, MeterRegistry meterRegistry) {
+        this.revocationStore = revocationStore;
+        this.validTokens = validationTimer(meterRegistry, "valid");
+        this.invalidTokens = validationTimer(meterRegistry, "invalid");
+        this.expiredTokens = validationTimer(meterRegistry, "expired");
+        this.revokedTokens = validationTimer(meterRegistry, "revoked");
+        Gauge.builder("auth.jwt.blacklist.size", this, utils -> utils.blacklist != null ? utils.blacklist.size() : 0)
+                .description("Revoked tokens not expired yet")
+                .register(meterRegistry);
+    }
+
+    private static Timer validationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt.validate")
+                .description("Token validations, signature checks of uncached tokens included")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
     /**
-     * Initializes the JwtUtils class by configuring the secret key and starting a scheduled task
-     * to remove expired tokens from the blacklist.
+     * Initializes the JwtUtils class by configuring the secret key, loading the revoked tokens
+     * from the store and starting the scheduled tasks that keep the blacklist up to date.
      */
     @PostConstruct
     public void init() {
@@ -48,15 +120,31 @@ public class JwtUtils {
         }
         byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
-        System.out.println("JwtUtils initialized with secure key.");
-        scheduler.scheduleAtFixedRate(this::removeExpiredTokens, 1, 1, java.util.concurrent.TimeUnit.HOURS);
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verifiedTokens = new VerifiedTokenCache(verifiedCacheMaxSize);
+        this.blacklist = new TokenBlacklist(blacklistExpectedSize, blacklistFalsePositiveRate,
+                blacklistTickMillis, blacklistWheelSize, System.currentTimeMillis());
+        LOGGER.info("JwtUtils initialized with secure key");
+        syncRevocations();
+        scheduler.scheduleAtFixedRate(this::removeExpiredTokens,
+                blacklistTickMillis, blacklistTickMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::syncRevocations,
+                revocationPollMillis, revocationPollMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::purgeRevocations,
+                revocationPurgeIntervalMillis, revocationPurgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
     }
 
     /**
      * Generates a JWT token for the given user.
      * <p>
-     * This method creates a JWT token with the user's username as the subject,
+     * This method creates a JWT token with the user's username as the subject, a random identifier,
      * the current date as the issued date, and an expiration date based on the configured expiration time.
+     * The user's id and role are carried as claims, so requests are authorised without loading the user.
      * The token is signed with the secret key.
      *
      * @param user The user for whom the token is generated.
@@ -65,6 +153,9 @@ public class JwtUtils {
     public String generateToken(HomelabUserDTO user) {
         return Jwts.builder()
                 .subject(user.username())
+                .id(UUID.randomUUID().toString())
+                .claim(CLAIM_USER_ID, user.id())
+                .claim(CLAIM_ROLE, user.role() != null ? user.role().name() : null)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
                 .signWith(key, Jwts.SIG.HS256)
@@ -76,66 +167,98 @@ public class JwtUtils {
      *
      * @param token The JWT token.
      * @return The username extracted from the token.
+     * @throws JwtException if the token cannot be verified
      */
     public String getUsernameFromToken(String token) {
-        return Jwts.parser().verifyWith(key).build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verify(token, System.currentTimeMillis()).claims().getSubject();
     }
 
     /**
      * Validates the given JWT token.
-     * <p>
-     * This method checks if the token is not null, not empty, not blacklisted,
-     * and if it is well-formed. It also checks if the token is expired.
      *
      * @param token The JWT token to validate.
      * @return true if the token is valid, false otherwise.
+     * @see #validateAndParse(String)
      */
     public boolean validateToken(String token) {
+        return validateAndParse(token) != null;
+    }
 
+    /**
+     * Validates the given JWT token and returns its claims.
+     * <p>
+     * This method checks if the token is not null, not empty, not blacklisted,
+     * and if it is well-formed. It also checks if the token is expired.
+     * The signature of a token is only verified the first time the token is seen,
+     * its claims are then served from the cache until it expires. The blacklist is
+     * checked on every call.
+     *
+     * @param token The JWT token to validate.
+     * @return the claims of the token, or null if the token is invalid.
+     */
+    public Claims validateAndParse(String token) {
+        long start = System.nanoTime();
         if (token == null || token.isEmpty()) {
-            return false;
+            return validated(invalidTokens, start, null);
         }
-        if (isBlacklisted(token)) {
-            return false;
+        // check if token is malformed
+        if (token.length() < 10) {
+            LOGGER.debug("Token is malformed.");
+            return validated(invalidTokens, start, null);
         }
 
+        long now = System.currentTimeMillis();
+        VerifiedToken verified;
         try {
-            // check if token is malformed
-            if (token.length() < 10) {
-                LOGGER.debug("Token is malformed.");
-                return false;
-            }
+            // the parser rejects expired tokens and invalid signatures
+            verified = verify(token, now);
+        } catch (ExpiredJwtException e) {
+            LOGGER.debug("Token is expired.");
+            return validated(expiredTokens, start, null);
+        } catch (JwtException | IllegalArgumentException e) {
+            LOGGER.debug("Token is Invalid: {}", e.getMessage());
+            return validated(invalidTokens, start, null);
+        }
 
-            // check if token is valid
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+        if (verified.expiresAt() <= now) {
+            LOGGER.debug("Token is expired.");
+            return validated(expiredTokens, start, null);
+        }
+        if (blacklist.isRevoked(verified.id())) {
+            LOGGER.debug("Token is blacklisted.");
+            return validated(revokedTokens, start, null);
+        }
 
-            // check is token expired
-            Date expiration = Jwts.parser().verifyWith(key).build()
-                    .parseSignedClaims(token)
-                    .getPayload()
-                    .getExpiration();
+        LOGGER.debug("Token is Valid.");
+        return validated(validTokens, start, verified.claims());
+    }
 
-            if (expiration != null && expiration.before(new Date())) {
-                LOGGER.debug("Token is expired.");
-                return false;
-            }
+    private static Claims validated(Timer timer, long start, Claims claims) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
+    }
 
-            LOGGER.debug("Token is Valid.");
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            LOGGER.debug("Token is Invalid: {}", e.getMessage());
-            return false;
+    /**
+     * Returns the verified token from the cache, or verifies its signature and caches it.
+     *
+     * @throws JwtException if the token cannot be verified
+     */
+    private VerifiedToken verify(String token, long now) {
+        TokenDigest digest = TokenDigest.of(token);
+        VerifiedToken verified = verifiedTokens.get(digest, now);
+        if (verified == null) {
+            verified = VerifiedToken.of(parser.parseSignedClaims(token).getPayload(), digest);
+            verifiedTokens.put(digest, verified);
         }
+        return verified;
     }
 
     /**
      * Blacklists the given JWT token.
      * <p>
-     * This method adds the token to the blacklist and sets its expiration time.
-     * If the token is already blacklisted, it does nothing.
+     * This method adds the identifier of the token to the blacklist until the token expires,
+     * and records the revocation in the shared store.
+     * If the token is already blacklisted, expired or invalid, it does nothing.
      *
      * @param token The JWT token to blacklist.
      */
@@ -144,25 +267,44 @@ public class JwtUtils {
             return;
         }
 
-        if (blacklist.contains(token)) {
+        long now = System.currentTimeMillis();
+        VerifiedToken verified;
+        try {
+            verified = verify(token, now);
+        } catch (JwtException | IllegalArgumentException e) {
+            LOGGER.debug("Token not blacklisted, it is no longer valid: {}", e.getMessage());
             return;
         }
 
-        expirationMap.put(token, System.currentTimeMillis() + jwtExpirationMs);
-        LOGGER.debug("Token blacklisted: {}", token);
-        blacklist.add(token);
+        long expiresAt = verified.expiresAt() != Long.MAX_VALUE ? verified.expiresAt() : now + jwtExpirationMs;
+        try {
+            revocationStore.revoke(verified.id(), expiresAt, now);
+        } catch (RuntimeException e) {
+            // still revoked on this instance, the other ones will not know about it
+            LOGGER.error("Cannot record the revocation of token {}: {}", verified.id(), e.getMessage());
+        }
+        if (blacklist.revoke(verified.id(), expiresAt, now)) {
+            LOGGER.debug("Token blacklisted: {}", verified.id());
+        }
+        verifiedTokens.invalidate(token);
     }
 
     /**
      * Checks if the given JWT token is blacklisted.
      * <p>
-     * This method checks if the token is present in the blacklist.
+     * This method checks if the identifier of the token is present in the blacklist.
+     * Invalid tokens are not considered blacklisted.
      *
      * @param token The JWT token to check.
      * @return true if the token is blacklisted, false otherwise.
      */
     public boolean isBlacklisted(String token) {
-        boolean blackListed = blacklist.contains(token);
+        boolean blackListed;
+        try {
+            blackListed = blacklist.isRevoked(verify(token, System.currentTimeMillis()).id());
+        } catch (JwtException | IllegalArgumentException e) {
+            blackListed = false;
+        }
         LOGGER.debug("Token is blacklisted: {}", blackListed);
         return blackListed;
     }
@@ -170,12 +312,46 @@ public class JwtUtils {
     /**
      * Removes expired tokens from the blacklist.
      * <p>
-     * This method iterates over the expiration map and removes tokens that have expired.
-     * It also removes tokens from the blacklist that are no longer present in the expiration map.
+     * This method moves the timing wheel of the blacklist up to the current time, dropping the
+     * tokens whose expiration has passed.
      */
     private void removeExpiredTokens() {
-        long currentTime = System.currentTimeMillis();
-        expirationMap.entrySet().removeIf(entry -> entry.getValue() < currentTime);
-        blacklist.removeIf(token -> !expirationMap.containsKey(token));
+        int removed = blacklist.advance(System.currentTimeMillis());
+        if (removed > 0) {
+            LOGGER.debug("{} expired tokens removed from the blacklist", removed);
+        }
+    }
+
+    /**
+     * Pulls the revocations recorded by every instance since the last synchronisation into
+     * the local blacklist. The first call loads every revocation not expired yet.
+     */
+    public void syncRevocations() {
+        long now = System.currentTimeMillis();
+        long since = syncedUntil == Long.MIN_VALUE ? 0 : syncedUntil - revocationOverlapMillis;
+        try {
+            List<TokenRevocation> revocations = revocationStore.findRevokedSince(since, now);
+            int added = 0;
+            for (TokenRevocation revocation : revocations) {
+                if (blacklist.revoke(revocation.tokenId(), revocation.expiresAt(), now)) {
+                    added++;
+                }
+            }
+            syncedUntil = now;
+            if (added > 0) {
+                LOGGER.debug("{} revoked tokens pulled from the revocation store", added);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot pull revoked tokens from the revocation store: {}", e.getMessage());
+        }
+    }
+
+    private void purgeRevocations() {
+        try {
+            int purged = revocationStore.deleteExpired(System.currentTimeMillis());
+            LOGGER.debug("{} expired revocations purged from the revocation store", purged);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot purge the revocation store: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
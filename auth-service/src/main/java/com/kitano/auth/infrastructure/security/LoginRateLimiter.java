@@ -0,0 +1,84 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.config.RateLimitProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Rate limits logins by IP address and by username, and registrations by IP address,
+ * before any database access or password check.
+ * <p>
+ * IP addresses reported by security-service alerts are {@link #penalizeIp(String) penalised}:
+ * they regain attempts {@code auth.rate-limit.penalty-factor} times slower for a while.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final RateLimitProperties properties;
+    private final TokenBucketRateLimiter byIp;
+    private final TokenBucketRateLimiter byUsername;
+
+    public LoginRateLimiter(RateLimitProperties properties) {
+        long now = System.currentTimeMillis();
+        this.properties = properties;
+        this.byIp = new TokenBucketRateLimiter(properties.getIpCapacity(), properties.getIpRefillPerMinute(),
+                properties.getPenaltyFactor(), properties.getMaxTrackedKeys(), now);
+        this.byUsername = new TokenBucketRateLimiter(properties.getUsernameCapacity(),
+                properties.getUsernameRefillPerMinute(), 1, properties.getMaxTrackedKeys(), now);
+    }
+
+    /**
+     * Usernames are trimmed and lower cased, so that case or whitespace variants of a
+     * username share its bucket.
+     *
+     * @throws RateLimitExceededException if the IP address or the username made too many attempts
+     */
+    public void checkLogin(String ipAddress, String username) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        acquire(byIp, ipAddress, now, "Too many attempts from this address");
+        acquire(byUsername, username != null ? username.trim().toLowerCase(Locale.ROOT) : null, now,
+                "Too many attempts for this user");
+    }
+
+    /**
+     * @throws RateLimitExceededException if the IP address made too many attempts
+     */
+    public void checkRegister(String ipAddress) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        acquire(byIp, ipAddress, System.currentTimeMillis(), "Too many attempts from this address");
+    }
+
+    /**
+     * Throttles the given IP address harder for {@code auth.rate-limit.penalty-duration}.
+     *
+     * @param ipAddress the IP address, ignored if null
+     */
+    public void penalizeIp(String ipAddress) {
+        if (ipAddress == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        byIp.penalize(ipAddress, now, now + properties.getPenaltyDuration().toMillis());
+        LOGGER.info("IP address {} throttled for {}", ipAddress, properties.getPenaltyDuration());
+    }
+
+    private static void acquire(TokenBucketRateLimiter limiter, String key, long now, String message) {
+        if (key == null) {
+            return;
+        }
+        long retryAfter = limiter.tryAcquire(key, now);
+        if (retryAfter > 0) {
+            throw new RateLimitExceededException(message, retryAfter);
+        }
+    }
+}
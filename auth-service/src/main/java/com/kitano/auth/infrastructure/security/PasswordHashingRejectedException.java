@@ -0,0 +1,16 @@
+package com.kitano.auth.infrastructure.security;
+
+/**
+ * Thrown when a password cannot be hashed in time, the hashing executor being saturated.
+ * The caller should retry later.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,21 @@
+package com.kitano.auth.infrastructure.security;
+
+/**
+ * Snapshot of the activity of the password hashing executor.
+ *
+ * @param hashes            number of hashes and checks performed
+ * @param rejected          number of hashes rejected, the executor being saturated
+ * @param meanLatencyMillis mean time of a hash or check, queueing excluded
+ * @param maxLatencyMillis  max time of a hash or check, queueing excluded
+ * @param queueDepth        number of hashes waiting for a thread
+ * @param active            number of hashes in progress
+ * @param bcryptStrength    the configured BCrypt cost
+ */
+public record PasswordHashingStatistics(long hashes,
+                                        long rejected,
+                                        double meanLatencyMillis,
+                                        double maxLatencyMillis,
+                                        int queueDepth,
+                                        int active,
+                                        int bcryptStrength) {
+}
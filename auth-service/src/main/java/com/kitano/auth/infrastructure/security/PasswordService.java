@@ -1,19 +1,190 @@
 package com.kitano.auth.infrastructure.security;
 
+import com.kitano.auth.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hashes and checks passwords with BCrypt on a dedicated, bounded executor.
+ * <p>
+ * BCrypt is CPU bound on purpose, so at most {@code auth.password.threads} hashes run at once
+ * and at most {@code auth.password.queue-capacity} wait for a thread: past that, a login flood
+ * gets a {@link PasswordHashingRejectedException} right away instead of piling up request
+ * threads. Callers must not hold a database transaction while waiting for a hash.
+ * <p>
+ * The BCrypt time, rejections and executor load are exported as {@code auth.password.*} meters.
+ */
 @Service
-public class PasswordService {
+public class PasswordService implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordService.class);
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder encoder;
+    private final int strength;
+    private final long timeoutNanos;
+    private final ThreadPoolExecutor executor;
 
-    private final PasswordEncoder encoder = new BCryptPasswordEncoder();
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public PasswordService(PasswordHashingProperties properties) {
+        this.strength = properties.getBcryptStrength();
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.timeoutNanos = properties.getTimeout().toNanos();
+        int threads = Math.max(1, properties.getThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
 
     public String hash(String rawPassword) {
-        return encoder.encode(rawPassword);
+        return await(hashAsync(rawPassword));
     }
 
     public boolean matches(String rawPassword, String hashedPassword) {
-        return encoder.matches(rawPassword, hashedPassword);
+        return await(matchesAsync(rawPassword, hashedPassword));
+    }
+
+    /**
+     * Hashes the password on the hashing executor.
+     *
+     * @throws PasswordHashingRejectedException if the executor is saturated
+     */
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks the password on the hashing executor.
+     *
+     * @throws PasswordHashingRejectedException if the executor is saturated
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String hashedPassword) {
+        return submit(() -> encoder.matches(rawPassword, hashedPassword));
+    }
+
+    /**
+     * Tells whether the given hash was computed with another cost than the configured one,
+     * and should be replaced by a new hash of the password on the next successful login.
+     *
+     * @param hashedPassword the stored hash
+     * @return true if the hash is a BCrypt hash of another cost
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(hashedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public PasswordHashingStatistics getStatistics() {
+        long count = hashes.sum();
+        return new PasswordHashingStatistics(count,
+                rejected.sum(),
+                count == 0 ? 0 : totalNanos.sum() / 1e6 / count,
+                maxNanos.get() / 1e6,
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                strength);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("auth.password.hashing", this,
+                        service -> service.hashes.sum(), service -> service.totalNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("BCrypt hashes and checks, queueing excluded")
+                .register(registry);
+        FunctionCounter.builder("auth.password.rejected", this, service -> service.rejected.sum())
+                .description("Hashes rejected or timed out, the executor being saturated")
+                .register(registry);
+        Gauge.builder("auth.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Hashes waiting for a thread")
+                .register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashes in progress")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timed(task), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            LOGGER.warn("Password hashing rejected, {} hashes queued", executor.getQueue().size());
+            throw new PasswordHashingRejectedException("Too many concurrent password checks", e);
+        }
+    }
+
+    private <T> T timed(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            hashes.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password check timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while checking password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.kitano.auth.infrastructure.security;
+
+/**
+ * Thrown when a client exceeds its login or registration rate.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return the delay before the next attempt, in whole seconds as expected by {@code Retry-After}
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,52 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.iface.model.KtxRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Granted authorities of each {@link KtxRole}, {@code ROLE_<name>}, built once and shared
+ * by every authentication.
+ */
+public final class RoleAuthorities {
+
+    private static final Map<KtxRole, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(KtxRole.class);
+
+    static {
+        for (KtxRole role : KtxRole.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        }
+    }
+
+    private RoleAuthorities() {
+    }
+
+    /**
+     * @param role the role, may be null
+     * @return the authorities of the role, empty if the role is null
+     */
+    public static List<GrantedAuthority> of(KtxRole role) {
+        return role != null ? AUTHORITIES.get(role) : Collections.emptyList();
+    }
+
+    /**
+     * @param role the name of a role, may be null
+     * @return the role, or null if the name is null or unknown
+     */
+    public static KtxRole parse(String role) {
+        if (role == null) {
+            return null;
+        }
+        for (KtxRole value : KtxRole.values()) {
+            if (value.name().equals(role)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -1,8 +1,8 @@
 package com.kitano.auth.infrastructure.security;
 
-import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -14,22 +14,27 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
  * <p>
  * This class configures the security settings for the application,
  * including authentication and authorization.
+ * Endpoints restricted to a role are annotated with {@code @PreAuthorize}, the role being
+ * taken from the token by {@link JwtAuthenticationFilter}.
  */
 @Configuration
 @EnableWebSecurity
+@EnableMethodSecurity
 public class SecurityConfig {
 
     private final JwtUtils jwtUtils;
-    private final AuthUserJpaRepository repository;
+    private final UserPrincipalCache principalCache;
+    private final AuthEntryPointJwt authEntryPoint;
 
-    public SecurityConfig(JwtUtils jwtUtils, AuthUserJpaRepository repository) {
+    public SecurityConfig(JwtUtils jwtUtils, UserPrincipalCache principalCache, AuthEntryPointJwt authEntryPoint) {
         this.jwtUtils = jwtUtils;
-        this.repository = repository;
+        this.principalCache = principalCache;
+        this.authEntryPoint = authEntryPoint;
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtils, repository);
+        return new JwtAuthenticationFilter(jwtUtils, principalCache);
     }
 
     /**
@@ -44,9 +49,13 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        // scraped by Prometheus from within the homelab network
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // anonymous calls to a restricted endpoint get a 401, users lacking the role a 403
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(authEntryPoint))
                 .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -0,0 +1,127 @@
+package com.kitano.auth.infrastructure.security;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-bounded set of revoked token identifiers ({@code jti}).
+ * <p>
+ * Each revoked token is held as a 128-bit identifier together with its real expiration,
+ * and only until that expiration: entries are scheduled on a timing wheel with one slot per
+ * tick, and {@link #advance(long)} drops them at the tick they expire. Lookups first go
+ * through a {@link BloomFilter}, so the common "not revoked" answer never touches the set.
+ * The filter is rebuilt from the live identifiers once enough of them have expired.
+ */
+public class TokenBlacklist {
+
+    private final Set<UUID> revoked = ConcurrentHashMap.newKeySet();
+    private final List<Entry>[] wheel;
+    private final long tickMillis;
+    private final int expectedSize;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private long currentTick;
+    private int expiredSinceRebuild;
+
+    /**
+     * @param expectedSize      the number of live revocations the Bloom filter is sized for
+     * @param falsePositiveRate the false positive rate of the Bloom filter at that size
+     * @param tickMillis        the resolution of the expiry, in milliseconds
+     * @param wheelSize         the number of slots of the timing wheel
+     * @param now               the current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TokenBlacklist(int expectedSize, double falsePositiveRate, long tickMillis, int wheelSize, long now) {
+        this.expectedSize = expectedSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.wheel = new List[Math.max(1, wheelSize)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.filter = new BloomFilter(expectedSize, falsePositiveRate);
+        this.currentTick = now / this.tickMillis;
+    }
+
+    /**
+     * Revokes a token until its expiration. Tokens already expired are ignored.
+     *
+     * @param id        the identifier of the token
+     * @param expiresAt the expiration of the token in milliseconds
+     * @param now       the current time in milliseconds
+     * @return true if the token was not revoked yet
+     */
+    public synchronized boolean revoke(UUID id, long expiresAt, long now) {
+        if (expiresAt <= now || !revoked.add(id)) {
+            return false;
+        }
+        filter.put(id);
+        // the first tick at or after the expiration, an expiration already behind the wheel
+        // is handled at the next tick
+        long tick = Math.max((expiresAt + tickMillis - 1) / tickMillis, currentTick + 1);
+        wheel[(int) (tick % wheel.length)].add(new Entry(id, expiresAt));
+        return true;
+    }
+
+    /**
+     * @param id the identifier of the token
+     * @return true if the token is revoked and not expired yet
+     */
+    public boolean isRevoked(UUID id) {
+        return filter.mightContain(id) && revoked.contains(id);
+    }
+
+    /**
+     * Moves the wheel up to the given time, dropping the revocations that expired.
+     *
+     * @param now the current time in milliseconds
+     * @return the number of dropped revocations
+     */
+    public synchronized int advance(long now) {
+        long target = now / tickMillis;
+        if (target <= currentTick) {
+            return 0;
+        }
+        // past a full rotation every slot is visited once
+        long from = Math.max(currentTick + 1, target - wheel.length + 1);
+        int expired = 0;
+        for (long tick = from; tick <= target; tick++) {
+            Iterator<Entry> iterator = wheel[(int) (tick % wheel.length)].iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                // entries of later rotations stay in the slot
+                if (entry.expiresAt() <= now) {
+                    iterator.remove();
+                    revoked.remove(entry.id());
+                    expired++;
+                }
+            }
+        }
+        currentTick = target;
+
+        expiredSinceRebuild += expired;
+        if (expired > 0 && (revoked.isEmpty() || expiredSinceRebuild > Math.max(revoked.size(), expectedSize / 4))) {
+            rebuildFilter();
+        }
+        return expired;
+    }
+
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(expectedSize, falsePositiveRate);
+        revoked.forEach(rebuilt::put);
+        filter = rebuilt;
+        expiredSinceRebuild = 0;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private record Entry(UUID id, long expiresAt) {
+    }
+}
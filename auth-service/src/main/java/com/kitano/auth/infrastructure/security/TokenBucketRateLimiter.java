@@ -0,0 +1,166 @@
+package com.kitano.auth.infrastructure.security;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key (IP address, username...), refilled continuously.
+ * <p>
+ * Each bucket packs its token count and refill time in a single {@code long} updated by
+ * compare-and-set, so acquiring never locks nor allocates once the bucket exists. The number
+ * of buckets is bounded: past {@code maxKeys}, full buckets (that carry no information) are
+ * dropped first, then the least recently used ones.
+ * <p>
+ * A key can be penalised for a while, its bucket then refills {@code penaltyFactor} times slower.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    // tokens are counted in thousandths so that slow refill rates do not round down to nothing
+    private static final long ONE_TOKEN = 1000;
+
+    private final long capacity;
+    private final double refillPerMilli;
+    private final int penaltyFactor;
+    private final int maxKeys;
+    private final long epoch;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param capacity        the burst of acquisitions allowed per key, at most 16000
+     * @param refillPerMinute the acquisitions regained per key and per minute
+     * @param penaltyFactor   how much slower penalised keys refill
+     * @param maxKeys         the max number of tracked keys
+     * @param now             the current time in milliseconds
+     */
+    public TokenBucketRateLimiter(int capacity, int refillPerMinute, int penaltyFactor, int maxKeys, long now) {
+        this.capacity = Math.min(Math.max(1, capacity) * ONE_TOKEN, TOKEN_MASK);
+        this.refillPerMilli = Math.max(1, refillPerMinute) * ONE_TOKEN / 60_000.0;
+        this.penaltyFactor = Math.max(1, penaltyFactor);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.epoch = now;
+    }
+
+    /**
+     * Takes one token from the bucket of the given key.
+     *
+     * @param key the key, never null
+     * @param now the current time in milliseconds
+     * @return 0 if a token was taken, otherwise the milliseconds until one is available
+     */
+    public long tryAcquire(String key, long now) {
+        Bucket bucket = bucket(key, now);
+        double rate = rate(bucket, now);
+        long time = now - epoch;
+        bucket.lastAccess = now;
+        while (true) {
+            long current = bucket.state.get();
+            long tokens = tokens(current);
+            long refillTime = time(current);
+            long added = added(refillTime, time, rate);
+            if (added > 0) {
+                long refilled = Math.min(tokens + added, capacity);
+                // the refill time only moves by whole thousandths of tokens, no fraction is lost
+                refillTime = refilled == capacity ? time : refillTime + (long) (added / rate);
+                tokens = refilled;
+            }
+            if (tokens < ONE_TOKEN) {
+                return (long) Math.ceil((ONE_TOKEN - tokens) / rate);
+            }
+            if (bucket.state.compareAndSet(current, pack(tokens - ONE_TOKEN, refillTime))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Makes the bucket of the given key refill slower until the given time.
+     *
+     * @param key   the key
+     * @param now   the current time in milliseconds
+     * @param until the end of the penalty in milliseconds
+     */
+    public void penalize(String key, long now, long until) {
+        Bucket bucket = bucket(key, now);
+        bucket.penaltyUntil = Math.max(bucket.penaltyUntil, until);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private Bucket bucket(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(pack(capacity, now - epoch), now));
+            if (buckets.size() > maxKeys) {
+                evict(now);
+            }
+        }
+        return bucket;
+    }
+
+    private double rate(Bucket bucket, long now) {
+        return bucket.penaltyUntil > now ? refillPerMilli / penaltyFactor : refillPerMilli;
+    }
+
+    private static long added(long refillTime, long time, double rate) {
+        return time > refillTime ? (long) ((time - refillTime) * rate) : 0;
+    }
+
+    private boolean isFull(Bucket bucket, long now) {
+        long current = bucket.state.get();
+        return bucket.penaltyUntil <= now
+                && tokens(current) + added(time(current), now - epoch, refillPerMilli) >= capacity;
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> isFull(bucket, now));
+
+            int excess = buckets.size() - (maxKeys - maxKeys / 10);
+            if (excess <= 0) {
+                return;
+            }
+            long[] accesses = buckets.values().stream().mapToLong(bucket -> bucket.lastAccess).toArray();
+            Arrays.sort(accesses);
+            long cutoff = accesses[Math.min(excess, accesses.length) - 1];
+            buckets.values().removeIf(bucket -> bucket.lastAccess <= cutoff);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static long pack(long tokens, long time) {
+        return (time << TOKEN_BITS) | tokens;
+    }
+
+    private static long tokens(long state) {
+        return state & TOKEN_MASK;
+    }
+
+    private static long time(long state) {
+        return state >>> TOKEN_BITS;
+    }
+
+    private static final class Bucket {
+
+        // refill time (relative to the epoch) in the high bits, thousandths of tokens in the low bits
+        private final AtomicLong state;
+        private volatile long lastAccess;
+        private volatile long penaltyUntil;
+
+        private Bucket(long state, long now) {
+            this.state = new AtomicLong(state);
+            this.lastAccess = now;
+        }
+    }
+}
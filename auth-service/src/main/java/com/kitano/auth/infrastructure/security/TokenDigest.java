@@ -0,0 +1,38 @@
+package com.kitano.auth.infrastructure.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Compact 128-bit fingerprint of a raw JWT, the first half of its SHA-256 digest.
+ * <p>
+ * Used as a cache key instead of the token itself, so caches hold two longs per token
+ * rather than a copy of a ~200 characters string.
+ *
+ * @param high the first 64 bits of the digest
+ * @param low  the next 64 bits of the digest
+ */
+public record TokenDigest(long high, long low) {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    /**
+     * Computes the fingerprint of the given token.
+     *
+     * @param token the raw token
+     * @return the fingerprint of the token
+     */
+    public static TokenDigest of(String token) {
+        MessageDigest digest = SHA_256.get();
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        return new TokenDigest(hash.getLong(), hash.getLong());
+    }
+}
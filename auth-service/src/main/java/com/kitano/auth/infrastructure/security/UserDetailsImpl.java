@@ -1,6 +1,7 @@
 package com.kitano.auth.infrastructure.security;
 
 import com.kitano.core.model.HomeLabUser;
+import com.kitano.iface.model.KtxRole;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -12,25 +13,27 @@ public class UserDetailsImpl implements UserDetails {
     private final String id;
     private final String username;
     private final String password;
+    private final KtxRole role;
 
-    public UserDetailsImpl(String id, String username, String password) {
+    public UserDetailsImpl(String id, String username, String password, KtxRole role) {
         this.id = id;
         this.username = username;
         this.password = password;
+        this.role = role;
     }
 
     public static UserDetailsImpl build(HomeLabUser user) {
         return new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
-                user.getPassword()
+                user.getPassword(),
+                user.getRole()
         );
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // For now: no roles, just return null or empty list
-        return null;
+        return RoleAuthorities.of(role);
     }
 
     @Override
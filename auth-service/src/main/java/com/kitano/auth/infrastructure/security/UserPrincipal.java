@@ -0,0 +1,19 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.core.model.HomeLabUser;
+import com.kitano.iface.model.KtxRole;
+
+/**
+ * What the request path needs to know about an authenticated user, without the password.
+ *
+ * @param id       the user id
+ * @param username the username
+ * @param role     the role of the user
+ * @param banned   whether the user is banned
+ */
+public record UserPrincipal(String id, String username, KtxRole role, boolean banned) {
+
+    public static UserPrincipal of(HomeLabUser user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getRole(), user.isBan());
+    }
+}
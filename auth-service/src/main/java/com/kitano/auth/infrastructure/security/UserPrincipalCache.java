@@ -0,0 +1,113 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
+import com.kitano.core.model.HomeLabUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, TTL-based cache of {@link UserPrincipal}s by username, in front of the users table.
+ * <p>
+ * Authenticated requests resolve their user from this cache, so the steady-state request path
+ * does not query the database. Changes made by this instance (ban, unban, registration)
+ * {@link #invalidate(String) invalidate} the user right away; changes made by other instances
+ * are picked up once the entry expires, so a ban takes effect everywhere within
+ * {@code auth.user-cache.ttl-millis}. Unknown usernames are not cached.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final AuthUserJpaRepository userRepository;
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    @Autowired
+    public UserPrincipalCache(AuthUserJpaRepository userRepository,
+                              @Value("${auth.user-cache.max-size:10000}") int maxSize,
+                              @Value("${auth.user-cache.ttl-millis:30000}") long ttlMillis) {
+        this(userRepository, maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    UserPrincipalCache(AuthUserJpaRepository userRepository, int maxSize, long ttlMillis, LongSupplier clock) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the principal of the given user, loading it from the database on a cache miss
+     * or once the cached entry has expired.
+     *
+     * @param username the username
+     * @return the principal, or null if the user does not exist
+     */
+    public UserPrincipal get(String username) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAt() > now) {
+                return entry.principal();
+            }
+        }
+
+        HomeLabUser user = userRepository.findByUsername(username);
+        if (user == null) {
+            return null;
+        }
+        UserPrincipal principal = UserPrincipal.of(user);
+        synchronized (entries) {
+            entries.put(username, new Entry(principal, now + ttlMillis));
+        }
+        return principal;
+    }
+
+    /**
+     * Drops the given user from the cache. Within a transaction, the user is dropped again
+     * once the transaction commits, so a concurrent request cannot cache the data being replaced.
+     *
+     * @param username the username
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(username);
+                }
+            });
+        }
+    }
+
+    private void remove(String username) {
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(UserPrincipal principal, long expiresAt) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.kitano.auth.infrastructure.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.UUID;
+
+/**
+ * A token whose signature has been verified.
+ *
+ * @param claims    the claims of the token
+ * @param id        the 128-bit identifier of the token, its {@code jti}, or its
+ *                  {@link TokenDigest fingerprint} for tokens issued without one
+ * @param expiresAt the expiration of the token in milliseconds, {@link Long#MAX_VALUE} if none
+ */
+public record VerifiedToken(Claims claims, UUID id, long expiresAt) {
+
+    static VerifiedToken of(Claims claims, TokenDigest digest) {
+        return new VerifiedToken(claims, idOf(claims, digest),
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+    }
+
+    private static UUID idOf(Claims claims, TokenDigest digest) {
+        String jti = claims.getId();
+        if (jti != null) {
+            try {
+                return UUID.fromString(jti);
+            } catch (IllegalArgumentException e) {
+                // not issued by this service, fall back to the fingerprint
+            }
+        }
+        return new UUID(digest.high(), digest.low());
+    }
+}
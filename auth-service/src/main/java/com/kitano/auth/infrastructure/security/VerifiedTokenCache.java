@@ -0,0 +1,84 @@
+package com.kitano.auth.infrastructure.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the tokens whose signature has already been verified.
+ * <p>
+ * Tokens are keyed by their {@link TokenDigest}, so a hot token only costs a SHA-256 over
+ * its characters instead of a parse and an HMAC verification. An entry is only served until
+ * the expiration of its token, and the least recently used entries are evicted once
+ * {@code maxSize} is reached. The cache does not know about revocations: callers check the
+ * {@link TokenBlacklist} on top of it.
+ */
+public class VerifiedTokenCache {
+
+    private final Map<TokenDigest, VerifiedToken> entries;
+
+    /**
+     * @param maxSize the maximum number of cached tokens, caching is disabled when not positive
+     */
+    public VerifiedTokenCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TokenDigest, VerifiedToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the given token if it has been verified and is not expired yet.
+     *
+     * @param digest the fingerprint of the token
+     * @param now    the current time in milliseconds
+     * @return the verified token, or null on a cache miss
+     */
+    public VerifiedToken get(TokenDigest digest, long now) {
+        synchronized (entries) {
+            VerifiedToken token = entries.get(digest);
+            if (token == null) {
+                return null;
+            }
+            if (token.expiresAt() <= now) {
+                entries.remove(digest);
+                return null;
+            }
+            return token;
+        }
+    }
+
+    /**
+     * Caches a verified token. Tokens without expiration are not cached.
+     *
+     * @param digest the fingerprint of the token
+     * @param token  the token, verified by the caller
+     */
+    public void put(TokenDigest digest, VerifiedToken token) {
+        if (token.expiresAt() == Long.MAX_VALUE) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(digest, token);
+        }
+    }
+
+    /**
+     * Drops the given token from the cache.
+     *
+     * @param token the raw token
+     */
+    public void invalidate(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        synchronized (entries) {
+            entries.remove(digest);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
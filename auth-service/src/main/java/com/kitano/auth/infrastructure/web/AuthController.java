@@ -2,24 +2,30 @@ package com.kitano.auth.infrastructure.web;
 
 import com.kitano.auth.application.AuthService;
 import com.kitano.auth.infrastructure.proxy.SecurityServiceClient;
-import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
-import com.kitano.auth.infrastructure.security.JwtUtils;
+import com.kitano.auth.infrastructure.security.LoginRateLimiter;
+import com.kitano.auth.infrastructure.security.PasswordHashingRejectedException;
+import com.kitano.auth.infrastructure.security.PasswordHashingStatistics;
+import com.kitano.auth.infrastructure.security.PasswordService;
+import com.kitano.auth.infrastructure.security.RateLimitExceededException;
 import com.kitano.auth.model.HomelabUserCreateDTO;
 import com.kitano.auth.model.HomelabUserDTO;
 import com.kitano.auth.model.UserLoginDTO;
-import com.kitano.core.model.HomeLabUser;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.core.model.SystemException;
-import com.kitano.iface.model.KtxRole;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -30,22 +36,25 @@ public class AuthController {
 
     private final AuthService authService;
     private final SecurityServiceClient securityClient;
-    private final JwtUtils jwtUtils;
-    private final AuthUserJpaRepository authUserJpaRepository;
+    private final PasswordService passwordService;
+    private final LoginRateLimiter rateLimiter;
 
-    public AuthController(AuthService authService, SecurityServiceClient securityClient, JwtUtils jwtUtils, AuthUserJpaRepository authUserJpaRepository) {
+    public AuthController(AuthService authService, SecurityServiceClient securityClient,
+                          PasswordService passwordService, LoginRateLimiter rateLimiter) {
         this.authService = authService;
         this.securityClient = securityClient;
-        this.jwtUtils = jwtUtils;
-        this.authUserJpaRepository = authUserJpaRepository;
+        this.passwordService = passwordService;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
      * Handle login request and return a JWT if credentials are valid.
+     * Attempts are rate limited by IP address and by username before anything else.
      */
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody UserLoginDTO loginRequest, HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
+        rateLimiter.checkLogin(ipAddress, loginRequest.getUsername());
         loginRequest.setIpAddress(ipAddress);
         try {
             String token = authService.login(loginRequest);
@@ -57,11 +66,12 @@ public class AuthController {
     }
 
     /**
-     * Register a new user.
+     * Register a new user. Attempts are rate limited by IP address.
      */
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody HomelabUserCreateDTO createDTO, HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
+        rateLimiter.checkRegister(ipAddress);
         createDTO.setIpAddress(ipAddress);
         try {
             HomelabUserDTO registeredUser = authService.register(createDTO);
@@ -92,23 +102,52 @@ public class AuthController {
     }
 
     /**
-     * Fetch all events from security-service.
+     * Fetch a page of events from security-service, the most recent first.
+     * The cursor of the next page is returned in the X-Next-Cursor header.
+     * Restricted to administrators.
      */
     @GetMapping("/events")
-    public ResponseEntity<?> getAllEvents(HttpServletRequest request) {
-        LOGGER.info("Fetching all events from security-service");
-        try {
-            List<SystemEvent> events = securityClient.getAllEvents();
-            return events.isEmpty()
-                    ? ResponseEntity.noContent().build()
-                    : ResponseEntity.ok(events);
-        } catch (Exception e) {
-            LOGGER.error("Error while fetching events: {}", e.getMessage());
-            return ResponseEntity.status(500).build();
-        }
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<List<SystemEvent>>> getAllEvents(@RequestParam(defaultValue = "100") int limit,
+                                                                @RequestParam(required = false) String after) {
+        LOGGER.info("Fetching {} events after {} from security-service", limit, after);
+        return securityClient.getEventsPage(limit, after)
+                .map(page -> {
+                    if (page.events().isEmpty()) {
+                        return ResponseEntity.noContent().<List<SystemEvent>>build();
+                    }
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.next() != null) {
+                        response.header(SecurityServiceClient.NEXT_CURSOR_HEADER, page.next());
+                    }
+                    return response.body(page.events());
+                })
+                .onErrorResume(e -> {
+                    LOGGER.error("Error while fetching events: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(errorStatus(e)).build());
+                });
+    }
+
+    /**
+     * Stream the events of a time range from security-service as newline delimited JSON,
+     * event by event, without holding them in memory. Restricted to administrators.
+     */
+    @GetMapping(value = "/events/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<SystemEvent> streamEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LOGGER.info("Streaming events from {} to {} from security-service", from, to);
+        return securityClient.streamEvents(from, to)
+                .doOnError(e -> LOGGER.error("Error while streaming events: {}", e.getMessage()));
+    }
+
+    private static int errorStatus(Throwable e) {
+        return e instanceof CallNotPermittedException ? 503 : 500;
     }
 
     @PostMapping("/ban")
+    @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> banUser(@RequestBody String userId, HttpServletRequest request) {
         LOGGER.info("Banning user with ID: {}", userId);
         try {
@@ -122,6 +161,7 @@ public class AuthController {
 
     @PostMapping
     @RequestMapping("/unban")
+    @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> unbanUser(@RequestBody String userId, HttpServletRequest request) {
         LOGGER.info("Unbanning user with ID: {}", userId);
         try {
@@ -134,25 +174,29 @@ public class AuthController {
     }
 
     /**
-     * Check if the user is allowed to access the events.
-     * To be allowed, the user must be authenticated and have the role "ADMIN".
-     *
-     * @param request
-     * @return
+     * Activity of the password hashing executor. Restricted to administrators.
      */
-    private boolean isAdmin(HttpServletRequest request) {
-        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = null;
-        boolean isAdmin = false;
-        if (authentication != null && authentication.isAuthenticated()) {
-            String token = request.getHeader("Authorization");
-            if (token != null && token.startsWith("Bearer ")) {
-                token = token.substring(7);
-                username = jwtUtils.getUsernameFromToken(token);
-                HomeLabUser user = authUserJpaRepository.findByUsername(username);
-                isAdmin = user != null && KtxRole.ADMIN.equals(user.getRole());
-            }
-        }
-        return username != null && isAdmin;
+    @GetMapping("/password-hashing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public PasswordHashingStatistics getPasswordHashingStatistics() {
+        return passwordService.getStatistics();
+    }
+
+    /**
+     * Login and registration floods saturating the password hashing executor are turned
+     * away right away, the client being told to retry shortly.
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<String> handlePasswordHashingRejected(PasswordHashingRejectedException e) {
+        LOGGER.warn("Password hashing rejected: {}", e.getMessage());
+        return ResponseEntity.status(503).header("Retry-After", "1").body(e.getMessage());
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<String> handleRateLimitExceeded(RateLimitExceededException e) {
+        LOGGER.warn("Rate limit exceeded: {}", e.getMessage());
+        return ResponseEntity.status(429)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.kitano.auth.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * An IP address used by a banned user, with the last time the user was seen behind it.
+ * Registrations from such an address are refused for a while.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(BannedIp.Key.class)
+@Table(name = "banned_ips", indexes = {
+        @Index(name = "idx_banned_ips_user_id", columnList = "user_id")
+})
+public class BannedIp {
+
+    @Id
+    @Column(name = "ip_address", nullable = false)
+    private String ipAddress;
+
+    @Id
+    @Column(name = "user_id", nullable = false, length = 36)
+    private String userId;
+
+    @Column(name = "last_seen", nullable = false)
+    private LocalDateTime lastSeen;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String ipAddress;
+        private String userId;
+    }
+}
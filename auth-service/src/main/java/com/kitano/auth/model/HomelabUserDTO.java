@@ -1,8 +1,10 @@
 package com.kitano.auth.model;
 
+import com.kitano.iface.model.KtxRole;
 
 public record HomelabUserDTO(
         String id,
-        String username
+        String username,
+        KtxRole role
 ) {
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.kitano.auth.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+/**
+ * A revoked token, shared by every auth-service instance.
+ * Times are epoch milliseconds, as carried by the tokens themselves.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+})
+public class RevokedToken {
+
+    /**
+     * The {@code jti} of the token, stored as {@code BINARY(16)}.
+     */
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "token_id", columnDefinition = "BINARY(16)", nullable = false, updatable = false)
+    private UUID tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private long revokedAt;
+}
@@ -7,7 +7,8 @@ public class UserMapper {
     public static HomelabUserDTO toDto(HomeLabUser user) {
         return new HomelabUserDTO(
                 user.getId(),
-                user.getUsername()
+                user.getUsername(),
+                user.getRole()
         );
     }
 
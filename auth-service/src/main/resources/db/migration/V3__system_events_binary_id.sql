@@ -0,0 +1,16 @@
+-- V3: Store system_events ids as BINARY(16) instead of CHAR(36) strings
+-- New ids are time-ordered UUIDs (version 7), existing ones are converted as is
+
+ALTER TABLE system_events
+ADD COLUMN id_bin BINARY(16) NULL FIRST;
+
+UPDATE system_events
+SET id_bin = UUID_TO_BIN(id);
+
+ALTER TABLE system_events
+DROP PRIMARY KEY,
+DROP COLUMN id;
+
+ALTER TABLE system_events
+CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST,
+ADD PRIMARY KEY (id);
@@ -0,0 +1,11 @@
+-- V4: Index system_events for the per user, per IP, per type and by date queries
+-- All of them are bounded by a timestamp range and sorted by timestamp
+
+CREATE INDEX idx_system_events_user_timestamp ON system_events (user_id, timestamp);
+
+-- user_id makes the banned IP lookup at registration index-only
+CREATE INDEX idx_system_events_ip_timestamp ON system_events (ip_address, timestamp, user_id);
+
+CREATE INDEX idx_system_events_type_timestamp ON system_events (event_type, timestamp);
+
+CREATE INDEX idx_system_events_timestamp ON system_events (timestamp);
@@ -0,0 +1,14 @@
+-- V5: Revoked tokens shared by every auth-service instance
+-- Rows are kept until the token expires, times are epoch milliseconds
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id   BINARY(16) NOT NULL,
+    expires_at BIGINT     NOT NULL,
+    revoked_at BIGINT     NOT NULL,
+    PRIMARY KEY (token_id)
+);
+
+-- instances poll the revocations of the others by revocation time
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
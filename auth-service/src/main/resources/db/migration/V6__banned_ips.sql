@@ -0,0 +1,19 @@
+-- V6: IP addresses used by banned users, so registrations check an IP with a single key lookup
+-- Rows are added on ban and on login attempts of banned users, and removed on unban
+
+CREATE TABLE IF NOT EXISTS banned_ips (
+    ip_address VARCHAR(255) NOT NULL,
+    user_id    VARCHAR(36)  NOT NULL,
+    last_seen  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (ip_address, user_id)
+);
+
+-- unban removes the rows of a user
+CREATE INDEX idx_banned_ips_user_id ON banned_ips (user_id);
+
+INSERT INTO banned_ips (ip_address, user_id, last_seen)
+SELECT e.ip_address, e.user_id, MAX(e.timestamp)
+FROM system_events e
+JOIN users u ON u.id = e.user_id
+WHERE u.enabled = FALSE
+GROUP BY e.ip_address, e.user_id;
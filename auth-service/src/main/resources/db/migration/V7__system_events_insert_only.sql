@@ -0,0 +1,5 @@
+-- V7: system_events is insert-only, rows are never updated so they need no optimistic lock version
+-- Deploy both services from this release on: older ones still insert the column
+
+ALTER TABLE system_events
+DROP COLUMN version;
@@ -1,19 +1,22 @@
 package com.kitano.auth.application;
 
-import com.kitano.auth.infrastructure.messaging.AuthProducer;
-import com.kitano.auth.infrastructure.repository.AuthEventJpaRepository;
+import com.kitano.auth.infrastructure.messaging.AuthEventRecorder;
+import com.kitano.auth.infrastructure.repository.BannedIpJpaRepository;
 import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
 import com.kitano.auth.infrastructure.security.JwtUtils;
 import com.kitano.auth.infrastructure.security.PasswordService;
+import com.kitano.auth.infrastructure.security.UserPrincipalCache;
 import com.kitano.auth.model.HomelabUserCreateDTO;
 import com.kitano.auth.model.UserLoginDTO;
 import com.kitano.core.model.HomeLabUser;
 import com.kitano.core.model.SystemException;
 import com.kitano.iface.model.KtxRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
@@ -23,6 +26,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,9 +34,11 @@ class AuthServiceBanTest {
 
     @Mock private AuthUserJpaRepository userRepository;
     @Mock private PasswordService passwordService;
-    @Mock private AuthProducer producer;
-    @Mock private AuthEventJpaRepository eventJpaRepository;
+    @Mock private AuthEventRecorder eventRecorder;
+    @Mock private BannedIpJpaRepository bannedIpRepository;
     @Mock private JwtUtils jwtUtils;
+    @Mock private UserPrincipalCache principalCache;
+    @Spy private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private AuthService authService;
@@ -52,8 +58,6 @@ class AuthServiceBanTest {
 
         when(userRepository.findById(any())).thenReturn(java.util.Optional.of(user));
         when(userRepository.save(user)).thenReturn(user);
-        lenient().when(producer.sendEvent(any())).thenReturn(true);
-        lenient().when(eventJpaRepository.save(any())).thenReturn(null);
 
         // When
         authService.banUser("testuser");
@@ -61,6 +65,8 @@ class AuthServiceBanTest {
         // Then
         assertFalse(user.isEnabled());
         verify(userRepository).save(user);
+        verify(principalCache).invalidate("testuser");
+        verify(bannedIpRepository).indexUser(eq(user.getId()), any());
     }
 
     @Test
@@ -83,6 +89,7 @@ class AuthServiceBanTest {
         assertThrows(SystemException.class, () ->
                 authService.login(new UserLoginDTO(user.getUsername(), user.getPassword(), "ipAddress"))
         );
+        verify(bannedIpRepository).seen(eq("ipAddress"), eq(user.getId()), any());
     }
 
     @Test
@@ -99,6 +106,22 @@ class AuthServiceBanTest {
         assertThrows(SystemException.class, () -> authService.register(createDTO));
     }
 
+    @Test
+    void shouldNotAllowRegisterFromIpOfBannedUser() {
+        // Given
+        HomelabUserCreateDTO createDTO = new HomelabUserCreateDTO();
+        createDTO.setUsername("newuser");
+        createDTO.setPassword("password");
+        createDTO.setIpAddress("10.0.0.7");
+
+        when(userRepository.existsByUsername("newuser")).thenReturn(false);
+        when(bannedIpRepository.existsByIpAddressAndLastSeenGreaterThanEqual(eq("10.0.0.7"), any())).thenReturn(true);
+
+        // When & Then
+        assertThrows(SystemException.class, () -> authService.register(createDTO));
+        verify(userRepository, never()).save(any());
+    }
+
     @Test
     void afterUnbanShouldAllowLogin() throws SystemException {
         // Given
@@ -117,11 +140,10 @@ class AuthServiceBanTest {
         when(passwordService.matches(any(), any())).thenReturn(true);
         when(userRepository.save(user)).thenReturn(user);
         when(jwtUtils.generateToken(any())).thenReturn("token");
-        lenient().when(producer.sendEvent(any())).thenReturn(true);
-        lenient().when(eventJpaRepository.save(any())).thenReturn(null);
 
         // Unban the user
         authService.unbanUser(user.getId());
+        verify(bannedIpRepository).deleteByUserId(user.getId());
 
         // Simulate enabled user after unban
         user.setEnabled(true);
@@ -1,23 +1,27 @@
 package com.kitano.auth.application;
 
-import com.kitano.auth.infrastructure.messaging.AuthProducer;
-import com.kitano.auth.infrastructure.repository.AuthEventJpaRepository;
+import com.kitano.auth.infrastructure.messaging.AuthEventRecorder;
+import com.kitano.auth.infrastructure.repository.BannedIpJpaRepository;
 import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
 import com.kitano.auth.infrastructure.security.JwtUtils;
 import com.kitano.auth.infrastructure.security.PasswordService;
+import com.kitano.auth.infrastructure.security.UserPrincipalCache;
 import com.kitano.auth.model.HomelabUserCreateDTO;
 import com.kitano.auth.model.UserLoginDTO;
 import com.kitano.core.model.HomeLabUser;
 import com.kitano.core.model.SystemException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,11 +39,15 @@ class AuthServiceTest {
     @Mock
     private JwtUtils jwtUtils;
     @Mock
-    private AuthProducer producer;
+    private AuthEventRecorder eventRecorder;
     @Mock
     private PasswordService passwordService;
     @Mock
-    private AuthEventJpaRepository authEventJpaRepository;
+    private BannedIpJpaRepository bannedIpRepository;
+    @Mock
+    private UserPrincipalCache principalCache;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     @InjectMocks
     private AuthService authService;
     private HomeLabUser user;
@@ -67,7 +75,22 @@ class AuthServiceTest {
 
         assertNotNull(token);
         assertEquals(fakeJwtToken, token);
-        verify(producer).sendEvent(any()); // Logged event
+        verify(eventRecorder).record(any()); // Logged event
+        assertEquals(1, meterRegistry.get("auth.login").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void login_shouldRehashPasswordOfOutdatedCost() throws SystemException {
+        UserLoginDTO loginDTO = new UserLoginDTO(username, rawPassword, "127.0.0.1");
+
+        when(userRepository.findByUsername(username)).thenReturn(user);
+        when(passwordService.matches(rawPassword, hashedPassword)).thenReturn(true);
+        when(passwordService.needsRehash(hashedPassword)).thenReturn(true);
+        when(passwordService.hashAsync(rawPassword)).thenReturn(CompletableFuture.completedFuture("$2a$12$rehashed"));
+        when(jwtUtils.generateToken(any())).thenReturn(fakeJwtToken);
+
+        assertEquals(fakeJwtToken, authService.login(loginDTO));
+        verify(userRepository).updatePassword(user.getId(), hashedPassword, "$2a$12$rehashed");
     }
 
     @Test
@@ -78,7 +101,8 @@ class AuthServiceTest {
         when(passwordEncoder.matches(rawPassword, hashedPassword)).thenReturn(false);
 
         assertThrows(SystemException.class, () -> authService.login(loginDTO));
-        verify(producer).sendEvent(any()); // Still logs failure
+        verify(eventRecorder).record(any()); // Still logs failure
+        assertEquals(1, meterRegistry.get("auth.login").tag("outcome", "bad_credentials").timer().count());
     }
 
     @Test
@@ -95,7 +119,7 @@ class AuthServiceTest {
 
         assertNotNull(result);
         assertEquals(username, result.username());
-        verify(producer).sendEvent(any());
+        verify(eventRecorder).record(any());
     }
 
     @Test
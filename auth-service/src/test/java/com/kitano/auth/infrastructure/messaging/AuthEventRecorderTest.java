@@ -0,0 +1,157 @@
+package com.kitano.auth.infrastructure.messaging;
+
+import com.kitano.auth.config.EventRelayProperties;
+import com.kitano.auth.infrastructure.repository.AuthEventJpaRepository;
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.model.KtxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuthEventRecorderTest {
+
+    private AuthEventJpaRepository eventRepository;
+    private AuthProducer producer;
+    private EventRelayProperties properties;
+    private AuthEventRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(AuthEventJpaRepository.class);
+        producer = mock(AuthProducer.class);
+        properties = new EventRelayProperties();
+        properties.setMaxLatencyMillis(20);
+        recorder = new AuthEventRecorder(eventRepository, producer, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recorder.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldSaveThenSendEventsInTheBackground() {
+        recorder.start();
+        SystemEvent success = event(KtxEvent.EventType.AUTHENTICATION_SUCCESS);
+        SystemEvent failure = event(KtxEvent.EventType.AUTHENTICATION_FAILURE);
+
+        recorder.record(success);
+        recorder.record(failure);
+
+        verify(producer, timeout(2_000)).sendEvent(failure);
+        InOrder inOrder = inOrder(eventRepository, producer);
+        // the relay reuses its batch list, only the order can be checked afterwards
+        inOrder.verify(eventRepository).saveAll(anyList());
+        inOrder.verify(producer).sendEvent(success);
+        inOrder.verify(producer).sendEvent(failure);
+    }
+
+    @Test
+    void shouldSaveEventsOneByOneWhenTheirBatchFails() {
+        properties.setEnabled(false);
+        SystemEvent event = event(KtxEvent.EventType.USER_ACTION);
+        when(eventRepository.saveAll(anyList())).thenThrow(new IllegalStateException("deadlock"));
+
+        recorder.record(event);
+
+        InOrder inOrder = inOrder(eventRepository, producer);
+        inOrder.verify(eventRepository).save(event);
+        inOrder.verify(producer).sendEvent(event);
+        assertEquals(0, recorder.unsaved());
+    }
+
+    @Test
+    void shouldStillSendAndCountEventsThatCannotBeSaved() {
+        recorder.start();
+        when(eventRepository.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+        when(eventRepository.save(any())).thenThrow(new IllegalStateException("database down"));
+        SystemEvent event = event(KtxEvent.EventType.USER_ACTION);
+
+        recorder.record(event);
+
+        verify(producer, timeout(2_000)).sendEvent(event);
+        assertEquals(1, recorder.unsaved());
+    }
+
+    @Test
+    void shouldOnlyKeepFailuresOfRolledBackTransactions() {
+        properties.setEnabled(false);
+        SystemEvent action = event(KtxEvent.EventType.USER_ACTION);
+        SystemEvent failure = event(KtxEvent.EventType.AUTHENTICATION_FAILURE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        recorder.record(action);
+        recorder.record(failure);
+        verifyNoInteractions(eventRepository, producer);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        verify(producer).sendEvent(failure);
+        verify(producer, never()).sendEvent(action);
+    }
+
+    @Test
+    void shouldRecordEventsOfCommittedTransactions() {
+        properties.setEnabled(false);
+        SystemEvent action = event(KtxEvent.EventType.USER_ACTION);
+
+        TransactionSynchronizationManager.initSynchronization();
+        recorder.record(action);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        verify(eventRepository).saveAll(List.of(action));
+        verify(producer).sendEvent(action);
+    }
+
+    @Test
+    void shouldDropEventsOnceStopped() {
+        recorder.start();
+        recorder.stop();
+
+        recorder.record(event(KtxEvent.EventType.AUTHENTICATION_FAILURE));
+
+        assertEquals(1, recorder.dropped());
+        verify(producer, never()).sendEvent(any());
+    }
+
+    @Test
+    void shouldExportItsCounts() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        recorder.bindTo(registry);
+        recorder.record(event(KtxEvent.EventType.AUTHENTICATION_FAILURE));
+
+        assertEquals(0, registry.get("auth.events.pending").gauge().value());
+        assertEquals(1, registry.get("auth.events.dropped").functionCounter().count());
+        assertEquals(0, registry.get("auth.events.unsaved").functionCounter().count());
+    }
+
+    private static SystemEvent event(KtxEvent.EventType type) {
+        return SystemEvent.builder()
+                .userId("123")
+                .eventType(type)
+                .level(KtxEvent.Level.INFO)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .message(type.name())
+                .ipAddress("10.0.0.1")
+                .source("auth-service")
+                .build();
+    }
+}
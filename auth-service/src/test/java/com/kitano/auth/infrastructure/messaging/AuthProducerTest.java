@@ -1,22 +1,39 @@
 package com.kitano.auth.infrastructure.messaging;
 
+import com.kitano.core.messaging.EventKeys;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.iface.model.KtxEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class AuthProducerTest {
 
     private KafkaTemplate<String, SystemEvent> kafkaTemplate;
+    private MeterRegistry meterRegistry;
+    private CompletableFuture<SendResult<String, SystemEvent>> sendResult;
     private AuthProducer authProducer;
 
     @BeforeEach
     void setUp() {
         kafkaTemplate = mock(KafkaTemplate.class);
-        authProducer = new AuthProducer(kafkaTemplate);
+        meterRegistry = new SimpleMeterRegistry();
+        sendResult = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sendResult);
+        authProducer = new AuthProducer(kafkaTemplate, true, meterRegistry);
     }
 
     @Test
@@ -35,6 +52,60 @@ class AuthProducerTest {
         authProducer.sendEvent(event);
 
         // Then
-        verify(kafkaTemplate, times(1)).send("auth-events", event);
+        ProducerRecord<String, SystemEvent> record = sent();
+        assertEquals("auth-events", record.topic());
+        assertEquals("123", record.key());
+        assertEquals(event, record.value());
+        assertNull(EventTrace.readFrom(record.headers()));
+        sendResult.complete(null);
+        assertEquals(1, meterRegistry.get("events.send").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void sendEvent_shouldKeyUnknownUserByIpAddress() {
+        // Given
+        SystemEvent event = SystemEvent.builder()
+                .userId(EventKeys.UNKNOWN_USER)
+                .ipAddress("10.0.0.7")
+                .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
+                .level(KtxEvent.Level.WARNING)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .message("Login failed")
+                .source("auth-service")
+                .build();
+
+        // When
+        authProducer.sendEvent(event);
+
+        // Then
+        assertEquals("10.0.0.7", sent().key());
+    }
+
+    @Test
+    void sendEvent_shouldCarryTraceInHeaders() {
+        // Given
+        EventTrace trace = EventTrace.start();
+        SystemEvent event = SystemEvent.builder()
+                .userId("123")
+                .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
+                .level(KtxEvent.Level.INFO)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .message("Bad credentials")
+                .source("auth-service")
+                .trace(trace)
+                .build();
+
+        // When
+        authProducer.sendEvent(event);
+
+        // Then
+        assertEquals(trace, EventTrace.readFrom(sent().headers()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, SystemEvent> sent() {
+        ArgumentCaptor<ProducerRecord<String, SystemEvent>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(1)).send(captor.capture());
+        return captor.getValue();
     }
-}
\ No newline at end of file
+}
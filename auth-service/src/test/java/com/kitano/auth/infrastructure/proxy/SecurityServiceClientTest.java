@@ -0,0 +1,87 @@
+package com.kitano.auth.infrastructure.proxy;
+
+import com.kitano.auth.config.SecurityServiceClientProperties;
+import com.kitano.core.model.SystemEvent;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityServiceClientTest {
+
+    private static final String EVENT = "{\"userId\":\"%s\",\"eventType\":\"AUTHENTICATION_FAILURE\"}";
+
+    private final AtomicInteger failingCalls = new AtomicInteger();
+    private DisposableServer server;
+    private SecurityServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/api/events/stream", (request, response) -> response
+                                .header("Content-Type", "application/x-ndjson")
+                                .sendString(Flux.just(EVENT.formatted("user-1") + "\n", EVENT.formatted("user-2") + "\n")))
+                        .get("/api/events/all", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .header(SecurityServiceClient.NEXT_CURSOR_HEADER, "next-cursor")
+                                .sendString(Mono.just("[" + EVENT.formatted("user-1") + "]")))
+                        .get("/api/events/{id}/events", (request, response) -> {
+                            failingCalls.incrementAndGet();
+                            return response.status(500).send();
+                        }))
+                .bindNow();
+
+        SecurityServiceClientProperties properties = new SecurityServiceClientProperties();
+        properties.setBaseUrl("http://localhost:" + server.port());
+        properties.setSlidingWindowSize(2);
+        properties.setMinimumNumberOfCalls(2);
+        client = new SecurityServiceClient(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void streamEvents_shouldDecodeEventsAsTheyArrive() {
+        List<SystemEvent> events = client.streamEvents(null, null).collectList().block(Duration.ofSeconds(5));
+
+        assertNotNull(events);
+        assertEquals(List.of("user-1", "user-2"), events.stream().map(SystemEvent::getUserId).toList());
+    }
+
+    @Test
+    void getEventsPage_shouldReturnEventsAndNextCursor() {
+        EventPage page = client.getEventsPage(10, null).block(Duration.ofSeconds(5));
+
+        assertNotNull(page);
+        assertEquals(1, page.events().size());
+        assertEquals("next-cursor", page.next());
+    }
+
+    @Test
+    void getEventsForUser_shouldOpenCircuitAfterFailures() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(Exception.class, () -> client.getEventsForUser("user-1").blockLast(Duration.ofSeconds(5)));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreakerState());
+        assertThrows(CallNotPermittedException.class,
+                () -> client.getEventsForUser("user-1").blockLast(Duration.ofSeconds(5)));
+        assertEquals(2, failingCalls.get());
+    }
+}
@@ -0,0 +1,251 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
+import com.kitano.auth.infrastructure.repository.InMemoryTokenRevocationStore;
+import com.kitano.auth.model.HomelabUserDTO;
+import com.kitano.core.model.HomeLabUser;
+import com.kitano.iface.model.KtxRole;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per request cost of the authentication filters on an authenticated request, the user
+ * being cached. {@code before} runs copies of the two filters that used to authenticate
+ * every request, {@code after} the {@link JwtAuthenticationFilter} that replaced them, and
+ * {@code baseline} only the mock request, response and chain. Run with
+ * {@code mvn test -pl auth-service -am -Dbenchmark=true -Dtest=AuthenticationFilterBenchmark
+ * -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationFilterBenchmark {
+
+    private JwtUtils jwtUtils;
+    private String header;
+    private Filter[] before;
+    private Filter[] after;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(new InMemoryTokenRevocationStore(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "VGhpcy1pcy1hLXN1cGVyLXNlY3VyZS1rZXktZm9yLUpXVHMtQDEyMzQ1Njc4OTBhYmNkZWY=");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000L);
+        jwtUtils.init();
+
+        HomeLabUser user = new HomeLabUser();
+        user.setId("id-bench");
+        user.setUsername("bench");
+        user.setRole(KtxRole.ADMIN);
+        AuthUserJpaRepository repository = mock(AuthUserJpaRepository.class);
+        when(repository.findByUsername(anyString())).thenReturn(user);
+        UserPrincipalCache principalCache = new UserPrincipalCache(repository, 100, 3_600_000L);
+
+        header = "Bearer " + jwtUtils.generateToken(new HomelabUserDTO("id-bench", "bench", KtxRole.ADMIN));
+        // the security filter chain ran before the container filters
+        before = new Filter[]{
+                new LegacyJwtAuthenticationFilter(jwtUtils, principalCache),
+                new LegacyAuthTokenFilter(jwtUtils, principalCache)
+        };
+        after = new Filter[]{new JwtAuthenticationFilter(jwtUtils, principalCache)};
+
+        // the former filter printed every request, keep the formatting but not the console
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+        jwtUtils.shutdown();
+    }
+
+    /**
+     * The mock request, response and chain alone, to be subtracted from the filters cost.
+     */
+    @Benchmark
+    public MockHttpServletResponse baseline() throws Exception {
+        return filter(new Filter[0]);
+    }
+
+    /**
+     * {@code JwtAuthenticationFilter} then {@code AuthTokenFilter}, as they were before being merged.
+     */
+    @Benchmark
+    public MockHttpServletResponse before() throws Exception {
+        return filter(before);
+    }
+
+    /**
+     * The merged {@link JwtAuthenticationFilter}.
+     */
+    @Benchmark
+    public MockHttpServletResponse after() throws Exception {
+        return filter(after);
+    }
+
+    private MockHttpServletResponse filter(Filter[] filters) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/events");
+        request.addHeader("Authorization", header);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = new MockFilterChain();
+        for (int f = filters.length - 1; f >= 0; f--) {
+            Filter filter = filters[f];
+            FilterChain next = chain;
+            chain = (req, res) -> filter.doFilter(req, res, next);
+        }
+        chain.doFilter(request, response);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(AuthenticationFilterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+
+    /**
+     * {@code JwtAuthenticationFilter} before the filters were merged, registered in the
+     * security filter chain.
+     */
+    static class LegacyJwtAuthenticationFilter extends OncePerRequestFilter {
+
+        private final JwtUtils jwtUtils;
+        private final UserPrincipalCache principalCache;
+
+        LegacyJwtAuthenticationFilter(JwtUtils jwtUtils, UserPrincipalCache principalCache) {
+            this.jwtUtils = jwtUtils;
+            this.principalCache = principalCache;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain filterChain) throws ServletException, IOException {
+            System.out.println("JwtAuthenticationFilter triggered for: " + request.getRequestURI());
+            String token = extractToken(request);
+            if (token != null) {
+                if (jwtUtils.isBlacklisted(token)) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"error\": \"Token has been invalidated. \"}");
+                    return;
+                }
+                Claims claims = jwtUtils.validateAndParse(token);
+                if (claims != null) {
+                    String username = claims.getSubject();
+                    UserPrincipal user = principalCache.get(username);
+                    if (user != null && user.banned()) {
+                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                        response.setContentType("application/json");
+                        response.getWriter().write("{\"error\": \"User is banned\"}");
+                        return;
+                    }
+                    if (user != null) {
+                        var auth = new UsernamePasswordAuthenticationToken(username, null, Collections.emptyList());
+                        SecurityContextHolder.getContext().setAuthentication(auth);
+                    }
+                } else {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"error\": \"Invalid or expired token\"}");
+                    return;
+                }
+            }
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * {@code AuthTokenFilter} before it was removed, run by the servlet container on every
+     * request as a {@code @Component}.
+     */
+    static class LegacyAuthTokenFilter extends OncePerRequestFilter {
+
+        private final JwtUtils jwtUtils;
+        private final UserPrincipalCache principalCache;
+
+        LegacyAuthTokenFilter(JwtUtils jwtUtils, UserPrincipalCache principalCache) {
+            this.jwtUtils = jwtUtils;
+            this.principalCache = principalCache;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain filterChain) throws ServletException, IOException {
+            try {
+                String jwt = extractToken(request);
+                Claims claims = jwt != null ? jwtUtils.validateAndParse(jwt) : null;
+                if (claims != null) {
+                    UserPrincipal principal = principalCache.get(claims.getSubject());
+                    if (principal != null && !principal.banned()) {
+                        UserDetails userDetails = new UserDetailsImpl(principal.id(), principal.username(),
+                                null, principal.role());
+                        UsernamePasswordAuthenticationToken authentication =
+                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    }
+                }
+            } catch (Exception e) {
+                // the former filter logged and went on
+            }
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static String extractToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7);
+        }
+        return null;
+    }
+}
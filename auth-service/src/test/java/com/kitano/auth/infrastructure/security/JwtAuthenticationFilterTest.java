@@ -0,0 +1,126 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.iface.model.KtxRole;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtUtils jwtUtils;
+    private UserPrincipalCache principalCache;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletResponse response;
+    private MockFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = mock(JwtUtils.class);
+        principalCache = mock(UserPrincipalCache.class);
+        filter = new JwtAuthenticationFilter(jwtUtils, principalCache);
+        response = new MockHttpServletResponse();
+        chain = new MockFilterChain();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/events");
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private void validToken(String token, String username, String role) {
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.get(JwtUtils.CLAIM_ROLE, String.class)).thenReturn(role);
+        when(jwtUtils.validateAndParse(token)).thenReturn(claims);
+    }
+
+    private static String authority() {
+        return SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).findFirst().orElse(null);
+    }
+
+    @Test
+    void shouldAuthenticateWithTheRoleOfTheToken() throws Exception {
+        validToken("token", "alice", "ADMIN");
+        // the cached role is ignored when the token carries one
+        when(principalCache.get("alice")).thenReturn(new UserPrincipal("id", "alice", KtxRole.USER, false));
+
+        filter.doFilter(request("token"), response, chain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("alice", authentication.getName());
+        assertEquals("ROLE_ADMIN", authority());
+        assertNotNull(chain.getRequest());
+        verify(jwtUtils, times(1)).validateAndParse("token");
+    }
+
+    @Test
+    void shouldFallBackToTheCachedRoleForTokensWithoutRole() throws Exception {
+        validToken("legacy", "bob", null);
+        when(principalCache.get("bob")).thenReturn(new UserPrincipal("id", "bob", KtxRole.MANAGER, false));
+
+        filter.doFilter(request("legacy"), response, chain);
+
+        assertEquals("ROLE_MANAGER", authority());
+    }
+
+    @Test
+    void shouldLetRequestsWithoutTokenThrough() throws Exception {
+        filter.doFilter(request(null), response, chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+        verifyNoInteractions(jwtUtils, principalCache);
+    }
+
+    @Test
+    void shouldRejectInvalidToken() throws Exception {
+        filter.doFilter(request("bad"), response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("{\"error\": \"Invalid or expired token\"}", response.getContentAsString());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void shouldRejectBlacklistedToken() throws Exception {
+        when(jwtUtils.isBlacklisted("revoked")).thenReturn(true);
+
+        filter.doFilter(request("revoked"), response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("invalidated"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void shouldRejectBannedUser() throws Exception {
+        validToken("token", "mallory", "USER");
+        when(principalCache.get("mallory")).thenReturn(new UserPrincipal("id", "mallory", KtxRole.USER, true));
+
+        filter.doFilter(request("token"), response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNull(chain.getRequest());
+    }
+}
@@ -0,0 +1,186 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.infrastructure.repository.InMemoryTokenRevocationStore;
+import com.kitano.auth.infrastructure.repository.TokenRevocationStore;
+import com.kitano.auth.model.HomelabUserDTO;
+import com.kitano.iface.model.KtxRole;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "VGhpcy1pcy1hLXN1cGVyLXNlY3VyZS1rZXktZm9yLUpXVHMtQDEyMzQ1Njc4OTBhYmNkZWY=";
+
+    private TokenRevocationStore revocationStore;
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        revocationStore = new InMemoryTokenRevocationStore();
+        jwtUtils = newJwtUtils(3_600_000L, revocationStore);
+    }
+
+    private static JwtUtils newJwtUtils(long expirationMs, TokenRevocationStore revocationStore) {
+        return newJwtUtils(expirationMs, revocationStore, new SimpleMeterRegistry());
+    }
+
+    private static JwtUtils newJwtUtils(long expirationMs, TokenRevocationStore revocationStore,
+                                        MeterRegistry meterRegistry) {
+        JwtUtils utils = new JwtUtils(revocationStore, meterRegistry);
+        ReflectionTestUtils.setField(utils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(utils, "jwtExpirationMs", expirationMs);
+        utils.init();
+        return utils;
+    }
+
+    private static HomelabUserDTO user(String username) {
+        return new HomelabUserDTO("id-" + username, username, KtxRole.USER);
+    }
+
+    private VerifiedTokenCache cache() {
+        return (VerifiedTokenCache) ReflectionTestUtils.getField(jwtUtils, "verifiedTokens");
+    }
+
+    @Test
+    void shouldParseValidTokenOnceAndServeItFromCache() {
+        String token = jwtUtils.generateToken(user("alice"));
+
+        Claims first = jwtUtils.validateAndParse(token);
+        Claims second = jwtUtils.validateAndParse(token);
+
+        assertNotNull(first);
+        assertEquals("alice", first.getSubject());
+        assertSame(first, second);
+        assertEquals(1, cache().size());
+        assertEquals("alice", jwtUtils.getUsernameFromToken(token));
+    }
+
+    @Test
+    void shouldRejectBlacklistedTokenEvenWhenCached() {
+        String token = jwtUtils.generateToken(user("bob"));
+        assertTrue(jwtUtils.validateToken(token));
+
+        jwtUtils.blacklist(token);
+
+        assertTrue(jwtUtils.isBlacklisted(token));
+        assertNull(jwtUtils.validateAndParse(token));
+    }
+
+    @Test
+    void shouldOnlyBlacklistTheLoggedOutToken() {
+        String first = jwtUtils.generateToken(user("erin"));
+        String second = jwtUtils.generateToken(user("erin"));
+
+        jwtUtils.blacklist(first);
+
+        assertNull(jwtUtils.validateAndParse(first));
+        assertNotNull(jwtUtils.validateAndParse(second));
+        assertFalse(jwtUtils.isBlacklisted(second));
+    }
+
+    @Test
+    void shouldShareRevocationsBetweenInstances() {
+        JwtUtils otherInstance = newJwtUtils(3_600_000L, revocationStore);
+        String token = jwtUtils.generateToken(user("grace"));
+        assertNotNull(otherInstance.validateAndParse(token));
+
+        jwtUtils.blacklist(token);
+        otherInstance.syncRevocations();
+
+        assertNull(otherInstance.validateAndParse(token));
+    }
+
+    @Test
+    void shouldLoadRevocationsOnStartup() {
+        String token = jwtUtils.generateToken(user("heidi"));
+        jwtUtils.blacklist(token);
+
+        JwtUtils restarted = newJwtUtils(3_600_000L, revocationStore);
+
+        assertTrue(restarted.isBlacklisted(token));
+    }
+
+    @Test
+    void shouldRevokeLocallyWhenTheStoreIsDown() {
+        TokenRevocationStore failing = mock(TokenRevocationStore.class);
+        doThrow(new IllegalStateException("store down")).when(failing).revoke(any(), anyLong(), anyLong());
+        JwtUtils utils = newJwtUtils(3_600_000L, failing);
+        String token = utils.generateToken(user("ivan"));
+
+        utils.blacklist(token);
+
+        assertNull(utils.validateAndParse(token));
+    }
+
+    @Test
+    void shouldCarryUserIdAndRoleClaims() {
+        String token = jwtUtils.generateToken(new HomelabUserDTO("id-admin", "admin", KtxRole.ADMIN));
+
+        Claims claims = jwtUtils.validateAndParse(token);
+
+        assertEquals("id-admin", claims.get(JwtUtils.CLAIM_USER_ID, String.class));
+        assertEquals("ADMIN", claims.get(JwtUtils.CLAIM_ROLE, String.class));
+    }
+
+    @Test
+    void shouldIssueTokensWithUniqueIdentifiers() {
+        Claims first = jwtUtils.validateAndParse(jwtUtils.generateToken(user("frank")));
+        Claims second = jwtUtils.validateAndParse(jwtUtils.generateToken(user("frank")));
+
+        assertNotNull(first.getId());
+        assertNotEquals(first.getId(), second.getId());
+    }
+
+    @Test
+    void shouldRejectTamperedToken() {
+        String token = jwtUtils.generateToken(user("carol"));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(jwtUtils.validateAndParse(tampered));
+        assertEquals(0, cache().size());
+    }
+
+    @Test
+    void shouldRejectExpiredToken() {
+        JwtUtils expiring = newJwtUtils(-1_000L, revocationStore);
+        String token = expiring.generateToken(user("dave"));
+
+        assertNull(expiring.validateAndParse(token));
+        assertFalse(expiring.validateToken(token));
+    }
+
+    @Test
+    void shouldRejectMissingOrMalformedToken() {
+        assertNull(jwtUtils.validateAndParse(null));
+        assertNull(jwtUtils.validateAndParse(""));
+        assertNull(jwtUtils.validateAndParse("abc"));
+        assertNull(jwtUtils.validateAndParse("not.a.validtoken"));
+    }
+
+    @Test
+    void shouldTimeValidationsByOutcome() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtils utils = newJwtUtils(3_600_000L, revocationStore, meterRegistry);
+        String token = utils.generateToken(user("ivan"));
+
+        utils.validateAndParse(token);
+        utils.validateAndParse("not-a-token-at-all");
+        utils.blacklist(token);
+        utils.validateAndParse(token);
+
+        assertEquals(1, meterRegistry.get("auth.jwt.validate").tag("outcome", "valid").timer().count());
+        assertEquals(1, meterRegistry.get("auth.jwt.validate").tag("outcome", "invalid").timer().count());
+        assertEquals(1, meterRegistry.get("auth.jwt.validate").tag("outcome", "revoked").timer().count());
+        assertEquals(1, meterRegistry.get("auth.jwt.blacklist.size").gauge().value());
+    }
+}
@@ -0,0 +1,61 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.application.AuthService;
+import com.kitano.auth.config.RateLimitProperties;
+import com.kitano.auth.infrastructure.proxy.SecurityServiceClient;
+import com.kitano.auth.infrastructure.web.AuthController;
+import com.kitano.auth.model.UserLoginDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LoginRateLimiterTest {
+
+    private LoginRateLimiter rateLimiter;
+    private AuthController controller;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setUsernameCapacity(3);
+        properties.setUsernameRefillPerMinute(3);
+        rateLimiter = new LoginRateLimiter(properties);
+        controller = new AuthController(mock(AuthService.class), mock(SecurityServiceClient.class),
+                mock(PasswordService.class), rateLimiter);
+    }
+
+    private static MockHttpServletRequest request(String ipAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(ipAddress);
+        return request;
+    }
+
+    @Test
+    void checkLogin_shouldShareTheBucketOfCaseAndWhitespaceVariants() {
+        rateLimiter.checkLogin("10.0.0.1", "alice");
+        rateLimiter.checkLogin("10.0.0.2", "Alice");
+        rateLimiter.checkLogin("10.0.0.3", " ALICE ");
+
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.checkLogin("10.0.0.4", "aLiCe"));
+        rateLimiter.checkLogin("10.0.0.4", "bob");
+    }
+
+    @Test
+    void login_shouldAnswerTooManyRequestsWithRetryAfter() {
+        for (String username : new String[]{"alice", "Alice", "ALICE"}) {
+            controller.login(new UserLoginDTO(username, "password", null), request("10.0.0.1"));
+        }
+
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class,
+                () -> controller.login(new UserLoginDTO("alice ", "password", null), request("10.0.0.2")));
+        ResponseEntity<String> response = controller.handleRateLimitExceeded(e);
+
+        assertEquals(429, response.getStatusCode().value());
+        // one attempt regained every 20s
+        assertEquals("20", response.getHeaders().getFirst("Retry-After"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.config.PasswordHashingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordServiceTest {
+
+    private PasswordService service;
+
+    private PasswordService newService(int strength, int threads, int queueCapacity) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setBcryptStrength(strength);
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        service = new PasswordService(properties);
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldHashAndMatchOnTheHashingExecutor() {
+        PasswordService passwords = newService(4, 1, 4);
+
+        String hash = passwords.hash("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(passwords.matches("secret", hash));
+        assertFalse(passwords.matches("wrong", hash));
+        assertEquals(3, passwords.getStatistics().hashes());
+    }
+
+    @Test
+    void shouldAskForRehashWhenTheCostChanges() {
+        PasswordService passwords = newService(5, 1, 4);
+
+        assertTrue(passwords.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(passwords.needsRehash(passwords.hash("secret")));
+        assertFalse(passwords.needsRehash("not a bcrypt hash"));
+        assertFalse(passwords.needsRehash(null));
+    }
+
+    @Test
+    void shouldRejectRightAwayWhenSaturated() {
+        PasswordService passwords = newService(14, 1, 1);
+
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        assertThrows(PasswordHashingRejectedException.class, () -> {
+            for (int i = 0; i < 3; i++) {
+                accepted.add(passwords.hashAsync("secret"));
+            }
+        });
+
+        assertEquals(2, accepted.size());
+        assertEquals(1, passwords.getStatistics().rejected());
+        accepted.forEach(future -> future.cancel(true));
+    }
+}
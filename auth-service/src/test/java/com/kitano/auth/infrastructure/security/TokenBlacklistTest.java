@@ -0,0 +1,99 @@
+package com.kitano.auth.infrastructure.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBlacklistTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final TokenBlacklist blacklist = new TokenBlacklist(1000, 0.01, 1000, 64, NOW);
+
+    @Test
+    void shouldRevokeUntilExactExpiry() {
+        UUID id = UUID.randomUUID();
+        assertTrue(blacklist.revoke(id, NOW + 5_000, NOW));
+
+        assertEquals(0, blacklist.advance(NOW + 4_999));
+        assertTrue(blacklist.isRevoked(id));
+
+        assertEquals(1, blacklist.advance(NOW + 5_000));
+        assertFalse(blacklist.isRevoked(id));
+        assertEquals(0, blacklist.size());
+    }
+
+    @Test
+    void shouldDropEntryExpiringWithinATickOnTheNextTick() {
+        UUID id = UUID.randomUUID();
+        blacklist.revoke(id, NOW + 5_500, NOW);
+
+        // the wheel is advanced once per tick, at its start
+        for (long t = NOW + 1_000; t <= NOW + 5_000; t += 1_000) {
+            assertEquals(0, blacklist.advance(t));
+        }
+        assertTrue(blacklist.isRevoked(id));
+
+        assertEquals(1, blacklist.advance(NOW + 6_000));
+        assertFalse(blacklist.isRevoked(id));
+        assertEquals(0, blacklist.size());
+    }
+
+    @Test
+    void shouldKeepEntriesExpiringAfterAFullRotation() {
+        UUID id = UUID.randomUUID();
+        // 64 slots of one second, the token expires after two rotations
+        blacklist.revoke(id, NOW + 150_000, NOW);
+
+        for (long t = NOW; t < NOW + 150_000; t += 1_000) {
+            blacklist.advance(t);
+        }
+        assertTrue(blacklist.isRevoked(id));
+
+        blacklist.advance(NOW + 150_000);
+        assertFalse(blacklist.isRevoked(id));
+    }
+
+    @Test
+    void shouldExpireEverythingAfterALongPause() {
+        for (int i = 0; i < 100; i++) {
+            blacklist.revoke(UUID.randomUUID(), NOW + 1_000 + i * 700L, NOW);
+        }
+
+        assertEquals(100, blacklist.advance(NOW + 3_600_000));
+        assertEquals(0, blacklist.size());
+    }
+
+    @Test
+    void shouldIgnoreExpiredAndDuplicateRevocations() {
+        UUID id = UUID.randomUUID();
+
+        assertFalse(blacklist.revoke(id, NOW, NOW));
+        assertTrue(blacklist.revoke(id, NOW + 1_000, NOW));
+        assertFalse(blacklist.revoke(id, NOW + 1_000, NOW));
+        assertEquals(1, blacklist.size());
+    }
+
+    @Test
+    void bloomFilterShouldNeverMissAnAddedIdentifier() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        UUID[] ids = new UUID[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            filter.put(ids[i]);
+        }
+        for (UUID id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,66 @@
+package com.kitano.auth.infrastructure.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void shouldAllowTheBurstThenAskToWait() {
+        // 3 attempts, one regained every 20s
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 3, 10, 100, NOW);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1", NOW));
+        }
+        assertEquals(20_000, limiter.tryAcquire("10.0.0.1", NOW));
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", NOW));
+    }
+
+    @Test
+    void shouldRefillContinuouslyWithoutLosingFractions() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 3, 10, 100, NOW);
+        assertEquals(0, limiter.tryAcquire("ip", NOW));
+
+        // polling every millisecond must not keep the bucket from refilling
+        long t = NOW;
+        while (limiter.tryAcquire("ip", t) > 0) {
+            t++;
+        }
+        assertEquals(NOW + 20_000, t, 1);
+    }
+
+    @Test
+    void shouldRefillPenalizedKeysSlower() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 60, 10, 100, NOW);
+        limiter.penalize("hot", NOW, NOW + 60_000);
+
+        assertEquals(0, limiter.tryAcquire("hot", NOW));
+        assertEquals(10_000, limiter.tryAcquire("hot", NOW));
+        assertEquals(0, limiter.tryAcquire("hot", NOW + 10_000));
+
+        // back to the normal rate once the penalty is over
+        assertEquals(0, limiter.tryAcquire("hot", NOW + 60_000));
+        assertEquals(1_000, limiter.tryAcquire("hot", NOW + 60_000));
+    }
+
+    @Test
+    void shouldBoundTheNumberOfTrackedKeys() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 5, 10, 100, NOW);
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("10.0.0." + i, NOW + i);
+            limiter.tryAcquire("10.0.0." + i, NOW + i);
+        }
+
+        assertTrue(limiter.size() <= 100, "tracked keys: " + limiter.size());
+        // the most recent keys are kept
+        limiter.tryAcquire("10.0.0.999", NOW + 1_000);
+        assertEquals(0, limiter.tryAcquire("10.0.0.999", NOW + 1_000));
+        assertEquals(0, limiter.tryAcquire("10.0.0.999", NOW + 1_000));
+        assertTrue(limiter.tryAcquire("10.0.0.999", NOW + 1_000) > 0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.kitano.auth.infrastructure.security;
+
+import com.kitano.auth.infrastructure.repository.AuthUserJpaRepository;
+import com.kitano.core.model.HomeLabUser;
+import com.kitano.iface.model.KtxRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserPrincipalCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private AuthUserJpaRepository userRepository;
+    private UserPrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(AuthUserJpaRepository.class);
+        cache = new UserPrincipalCache(userRepository, 2, 30_000L, now::get);
+    }
+
+    private HomeLabUser user(String username, boolean banned) {
+        HomeLabUser user = new HomeLabUser();
+        user.setId("id-" + username);
+        user.setUsername(username);
+        user.setRole(KtxRole.USER);
+        user.setBan(banned);
+        when(userRepository.findByUsername(username)).thenReturn(user);
+        return user;
+    }
+
+    @Test
+    void shouldQueryTheDatabaseOncePerTtl() {
+        user("alice", false);
+
+        UserPrincipal first = cache.get("alice");
+        UserPrincipal second = cache.get("alice");
+
+        assertEquals(new UserPrincipal("id-alice", "alice", KtxRole.USER, false), first);
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUsername("alice");
+
+        now.addAndGet(30_000L);
+        cache.get("alice");
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void shouldSeeBanRightAfterInvalidation() {
+        HomeLabUser alice = user("alice", false);
+        assertFalse(cache.get("alice").banned());
+
+        alice.setBan(true);
+        cache.invalidate("alice");
+
+        assertTrue(cache.get("alice").banned());
+    }
+
+    @Test
+    void shouldNotCacheUnknownUsers() {
+        assertNull(cache.get("ghost"));
+        assertNull(cache.get("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedUsers() {
+        user("alice", false);
+        user("bob", false);
+        user("carol", false);
+
+        cache.get("alice");
+        cache.get("bob");
+        cache.get("alice");
+        cache.get("carol");
+
+        assertEquals(2, cache.size());
+        cache.get("alice");
+        verify(userRepository, times(1)).findByUsername("alice");
+        cache.get("bob");
+        verify(userRepository, times(2)).findByUsername("bob");
+    }
+}
@@ -0,0 +1,142 @@
+package com.kitano.auth.infrastructure.web;
+
+import com.kitano.auth.application.AuthService;
+import com.kitano.auth.infrastructure.proxy.EventPage;
+import com.kitano.auth.infrastructure.proxy.SecurityServiceClient;
+import com.kitano.auth.infrastructure.repository.InMemoryTokenRevocationStore;
+import com.kitano.auth.infrastructure.security.AuthEntryPointJwt;
+import com.kitano.auth.infrastructure.security.JwtUtils;
+import com.kitano.auth.infrastructure.security.LoginRateLimiter;
+import com.kitano.auth.infrastructure.security.PasswordService;
+import com.kitano.auth.infrastructure.security.SecurityConfig;
+import com.kitano.auth.infrastructure.security.UserPrincipal;
+import com.kitano.auth.infrastructure.security.UserPrincipalCache;
+import com.kitano.auth.model.HomelabUserDTO;
+import com.kitano.iface.model.KtxRole;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The administration endpoints sit under {@code /api/auth/**}, which the security filter
+ * chain lets through: they are only guarded by their {@code @PreAuthorize}. Runs them with
+ * the security configuration of the service and tokens issued by {@link JwtUtils}.
+ */
+@WebMvcTest(properties = {
+        "jwt.secret=VGhpcy1pcy1hLXN1cGVyLXNlY3VyZS1rZXktZm9yLUpXVHMtQDEyMzQ1Njc4OTBhYmNkZWY=",
+        "jwt.revocation.store=memory"
+})
+class AuthControllerSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @MockitoBean
+    private AuthService authService;
+
+    @MockitoBean
+    private SecurityServiceClient securityClient;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private LoginRateLimiter rateLimiter;
+
+    @MockitoBean
+    private UserPrincipalCache principalCache;
+
+    private String adminToken;
+    private String userToken;
+
+    @BeforeEach
+    void setUp() {
+        when(principalCache.get("admin")).thenReturn(new UserPrincipal("id-admin", "admin", KtxRole.ADMIN, false));
+        when(principalCache.get("user")).thenReturn(new UserPrincipal("id-user", "user", KtxRole.USER, false));
+        adminToken = "Bearer " + jwtUtils.generateToken(new HomelabUserDTO("id-admin", "admin", KtxRole.ADMIN));
+        userToken = "Bearer " + jwtUtils.generateToken(new HomelabUserDTO("id-user", "user", KtxRole.USER));
+        when(securityClient.getEventsPage(anyInt(), any())).thenReturn(Mono.just(new EventPage(List.of(), null)));
+    }
+
+    @Test
+    void ban_shouldBeAllowedToAdmins() throws Exception {
+        mockMvc.perform(post("/api/auth/ban").header("Authorization", adminToken).content("id-user"))
+                .andExpect(status().isOk());
+
+        verify(authService).banUser("id-user");
+    }
+
+    @Test
+    void ban_shouldBeForbiddenToUsers() throws Exception {
+        mockMvc.perform(post("/api/auth/ban").header("Authorization", userToken).content("id-admin"))
+                .andExpect(status().isForbidden());
+
+        verify(authService, never()).banUser(any());
+    }
+
+    @Test
+    void ban_shouldRequireAuthentication() throws Exception {
+        mockMvc.perform(post("/api/auth/ban").content("id-admin"))
+                .andExpect(status().isUnauthorized());
+
+        verify(authService, never()).banUser(any());
+    }
+
+    @Test
+    void events_shouldBeAllowedToAdmins() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/auth/events").header("Authorization", adminToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void events_shouldBeForbiddenToUsers() throws Exception {
+        mockMvc.perform(get("/api/auth/events").header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(securityClient);
+    }
+
+    @Test
+    void events_shouldRequireAuthentication() throws Exception {
+        mockMvc.perform(get("/api/auth/events"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(securityClient);
+    }
+
+    @Configuration
+    @Import({AuthController.class, SecurityConfig.class, AuthEntryPointJwt.class,
+            JwtUtils.class, InMemoryTokenRevocationStore.class})
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
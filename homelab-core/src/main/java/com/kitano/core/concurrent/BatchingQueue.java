@@ -0,0 +1,180 @@
+package com.kitano.core.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue drained by batches by a single background thread.
+ * <p>
+ * Items are handed to the batch handler by batches of at most {@code batchSize} items. A
+ * batch is handled as soon as it is full or once its first item waited
+ * {@code maxLatencyMillis}. The queue is flushed on {@link #stop(long) stop}. The handler
+ * runs on the drain thread, or on the stopping thread for the items queued while the drain
+ * thread was exiting, and must not keep the list it is given: it is reused for the next
+ * batch.
+ *
+ * @param <T> the type of the queued items
+ */
+public class BatchingQueue<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingQueue.class);
+
+    /**
+     * Max time the drain thread waits on the queue before checking whether it is stopped.
+     */
+    private static final long POLL_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final Consumer<List<T>> handler;
+    private final BlockingQueue<T> queue;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    /**
+     * @param name             the name of the drain thread, also used in the logs
+     * @param capacity         the max number of queued items
+     * @param batchSize        the max number of items per batch
+     * @param maxLatencyMillis the max time the first item of a batch waits for the batch to fill up
+     * @param handler          the handler of the batches
+     */
+    public BatchingQueue(String name, int capacity, int batchSize, long maxLatencyMillis,
+                         Consumer<List<T>> handler) {
+        this.name = name;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Starts the drain thread, if not started yet.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drain, name);
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops accepting items and waits for the queued ones to be handled.
+     *
+     * @param timeoutMillis how long to wait for the drain thread
+     * @return false if the drain thread did not exit in time, its items still pending
+     */
+    public synchronized boolean stop(long timeoutMillis) {
+        if (!running) {
+            return true;
+        }
+        running = false;
+        try {
+            drainer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drainer.isAlive()) {
+            LOGGER.warn("{} did not flush within {} ms, {} items pending", name, timeoutMillis, queue.size());
+            return false;
+        }
+        // items queued while the drain thread was exiting
+        List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        handle(remaining);
+        return true;
+    }
+
+    /**
+     * Queues the given item without blocking.
+     *
+     * @param item the item to queue
+     * @return false if the queue is full or stopped
+     */
+    public boolean offer(T item) {
+        return running && queue.offer(item);
+    }
+
+    /**
+     * Queues the given item, waiting up to the given timeout for room in the queue.
+     *
+     * @param item    the item to queue
+     * @param timeout how long to wait
+     * @param unit    the unit of the timeout
+     * @return false if the queue stayed full or is stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        return running && queue.offer(item, timeout, unit);
+    }
+
+    /**
+     * @return whether items are accepted
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of items waiting to be handled
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<T> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(POLL_SLICE_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    T next = queue.poll(Math.min(remaining, POLL_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                handle(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                handle(batch);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void handle(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            handler.accept(batch);
+        } catch (RuntimeException e) {
+            // the drain thread outlives a failing batch
+            LOGGER.error("{} failed to handle {} items: {}", name, batch.size(), e.getMessage());
+        }
+    }
+}
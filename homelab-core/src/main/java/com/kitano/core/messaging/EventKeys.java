@@ -0,0 +1,49 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.model.KtxEventRecord;
+
+/**
+ * Computes the Kafka record key of a {@link SystemEvent}.
+ * <p>
+ * Events are keyed by user id so that all the events of a user land on the same partition,
+ * in order, and are consumed by the same security-service instance. Events of unidentified
+ * users can fall back to the IP address, which spreads them over partitions while keeping
+ * the events of an address together.
+ */
+public final class EventKeys {
+
+    /**
+     * User id of events whose user could not be identified.
+     */
+    public static final String UNKNOWN_USER = "unknown user";
+
+    private EventKeys() {
+    }
+
+    /**
+     * Returns the record key of the given event.
+     *
+     * @param event        the event to publish
+     * @param fallbackToIp whether events of unidentified users are keyed by IP address
+     * @return the key, or null if the event has neither user id nor usable IP address
+     */
+    public static String keyOf(SystemEvent event, boolean fallbackToIp) {
+        return keyOf(event.getUserId(), event.getIpAddress(), fallbackToIp);
+    }
+
+    /**
+     * Same as {@link #keyOf(SystemEvent, boolean)} for events carried as records.
+     */
+    public static String keyOf(KtxEventRecord event, boolean fallbackToIp) {
+        return keyOf(event.userId(), event.ipAddress(), fallbackToIp);
+    }
+
+    private static String keyOf(String userId, String ipAddress, boolean fallbackToIp) {
+        boolean unknownUser = userId == null || UNKNOWN_USER.equals(userId);
+        if (unknownUser && fallbackToIp && ipAddress != null) {
+            return ipAddress;
+        }
+        return userId;
+    }
+}
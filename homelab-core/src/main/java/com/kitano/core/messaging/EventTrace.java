@@ -0,0 +1,97 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.UuidV7;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Trace of an event across services, carried in the Kafka headers of its records.
+ * <p>
+ * A trace is started when an event is created, in the auth service, and is handed over to
+ * the alerts it raises in the security service, which measures the time from the creation
+ * of the event to the publication of the alert. The creation time is wall-clock time in
+ * microseconds since the epoch: {@link System#nanoTime()} has no meaning outside of the JVM
+ * that read it, so latencies rely on the clocks of the homelab hosts being synchronized.
+ *
+ * @param traceId         the id shared by an event and its alerts
+ * @param createdAtMicros the creation time of the event, in microseconds since the epoch
+ */
+public record EventTrace(String traceId, long createdAtMicros) {
+
+    /**
+     * Header holding the trace id, as UTF-8.
+     */
+    public static final String TRACE_ID_HEADER = "ktx-trace-id";
+
+    /**
+     * Header holding the creation time of the traced event, as a big-endian long.
+     */
+    public static final String CREATED_AT_HEADER = "ktx-created-at";
+
+    /**
+     * @return a new trace of an event created now
+     */
+    public static EventTrace start() {
+        return start(Clock.systemUTC());
+    }
+
+    /**
+     * @param clock the clock giving the creation time
+     * @return a new trace of an event created now
+     */
+    public static EventTrace start(Clock clock) {
+        return new EventTrace(UuidV7.randomUuid().toString(), toMicros(clock.instant()));
+    }
+
+    /**
+     * @param clock the clock giving the current time
+     * @return the microseconds elapsed since the creation of the traced event
+     */
+    public long elapsedMicros(Clock clock) {
+        return toMicros(clock.instant()) - createdAtMicros;
+    }
+
+    /**
+     * @return the creation time of the traced event
+     */
+    public Instant createdAt() {
+        return Instant.EPOCH.plus(createdAtMicros, ChronoUnit.MICROS);
+    }
+
+    /**
+     * Adds the trace headers to the given record headers.
+     *
+     * @param headers the headers of the record to send
+     */
+    public void writeTo(Headers headers) {
+        headers.add(TRACE_ID_HEADER, traceId.getBytes(StandardCharsets.UTF_8));
+        headers.add(CREATED_AT_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(createdAtMicros).array());
+    }
+
+    /**
+     * Reads the trace of a consumed record.
+     *
+     * @param headers the headers of the record
+     * @return the trace, or null if the record is not traced
+     */
+    public static EventTrace readFrom(Headers headers) {
+        Header traceId = headers.lastHeader(TRACE_ID_HEADER);
+        Header createdAt = headers.lastHeader(CREATED_AT_HEADER);
+        if (traceId == null || traceId.value() == null
+                || createdAt == null || createdAt.value() == null || createdAt.value().length != Long.BYTES) {
+            return null;
+        }
+        return new EventTrace(new String(traceId.value(), StandardCharsets.UTF_8),
+                ByteBuffer.wrap(createdAt.value()).getLong());
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+}
@@ -0,0 +1,33 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.messaging.KtxEventDeserializer;
+import com.kitano.iface.model.KtxEventRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Kafka deserializer of {@link SystemEvent}, reading both the JSON and the binary format
+ * whatever the producers use. Events are decoded by {@link KtxEventDeserializer}, then copied
+ * to a new entity: consumers that do not persist the events should use the former.
+ */
+public class SystemEventDeserializer implements Deserializer<SystemEvent> {
+
+    private final KtxEventDeserializer delegate = new KtxEventDeserializer();
+
+    @Override
+    public SystemEvent deserialize(String topic, byte[] data) {
+        return toEntity(delegate.deserialize(topic, data));
+    }
+
+    @Override
+    public SystemEvent deserialize(String topic, Headers headers, ByteBuffer data) {
+        return toEntity(delegate.deserialize(topic, headers, data));
+    }
+
+    private static SystemEvent toEntity(KtxEventRecord event) {
+        return event != null ? SystemEvent.of(event) : null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.messaging.KtxEventCodec;
+import com.kitano.iface.messaging.KtxEventSerializer;
+import com.kitano.iface.messaging.WireFormat;
+import com.kitano.iface.model.KtxJson;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Kafka serializer of {@link SystemEvent}, JSON by default, see {@link KtxEventCodec}.
+ * <p>
+ * When created by Kafka, the format is read from the {@value KtxEventSerializer#FORMAT_CONFIG}
+ * producer property.
+ */
+public class SystemEventSerializer implements Serializer<SystemEvent> {
+
+    private WireFormat format;
+
+    public SystemEventSerializer() {
+        this(WireFormat.JSON);
+    }
+
+    public SystemEventSerializer(WireFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        format = KtxEventSerializer.formatOf(configs, format);
+    }
+
+    @Override
+    public byte[] serialize(String topic, SystemEvent event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return format == WireFormat.BINARY
+                    ? KtxEventCodec.encode(event.toRecord())
+                    : KtxJson.writerFor(SystemEvent.class).writeValueAsBytes(event);
+        } catch (Exception e) {
+            throw new SerializationException("Cannot serialize event for topic " + topic, e);
+        }
+    }
+
+    public WireFormat getFormat() {
+        return format;
+    }
+}
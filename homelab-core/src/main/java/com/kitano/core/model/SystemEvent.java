@@ -1,30 +1,54 @@
 package com.kitano.core.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Stored event, the audit trail of the homelab.
+ * <p>
+ * The table is insert-only: events are {@link Immutable}, so Hibernate neither snapshots nor
+ * dirty checks the loaded ones, and carry no version. Saving an event that was not loaded nor
+ * persisted yet always inserts it, even with an assigned id, see {@link #isNew()}.
+ * Services work on {@link KtxEventRecord} and only map to this entity to store events.
+ */
 @Data
 @Entity
+@Immutable
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "system_events")
-public class SystemEvent implements KtxEvent<String> {
-
+@Table(name = "system_events", indexes = {
+        @Index(name = "idx_system_events_user_timestamp", columnList = "user_id, timestamp"),
+        @Index(name = "idx_system_events_ip_timestamp", columnList = "ip_address, timestamp, user_id"),
+        @Index(name = "idx_system_events_type_timestamp", columnList = "event_type, timestamp"),
+        @Index(name = "idx_system_events_timestamp", columnList = "timestamp")
+})
+public class SystemEvent implements KtxEvent<String>, Persistable<UUID> {
+
+    /**
+     * Time-ordered id, see {@link UuidV7}, stored as {@code BINARY(16)}.
+     */
     @Id
-    @Column(columnDefinition = "CHAR(36)", nullable = false, updatable = false)
-    private String id;
-
-    @Version
-    @Column(nullable = false)
-    private Long version;
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)", nullable = false, updatable = false)
+    private UUID id;
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime timestamp;
@@ -53,11 +77,35 @@ public class SystemEvent implements KtxEvent<String> {
     @Column(name = "source", nullable = false)
     private String source;
 
+    /**
+     * Set once the event is loaded or persisted, new events are never merged.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean persisted;
+
+    /**
+     * Trace of the event while it is relayed to Kafka, neither stored nor serialized.
+     */
+    @JsonIgnore
+    private transient EventTrace trace;
+
     @PrePersist
     protected void onCreate() {
-        if (this.id == null) this.id = UUID.randomUUID().toString();
+        if (this.id == null) this.id = UuidV7.randomUuid();
         if (this.timestamp == null) this.timestamp = LocalDateTime.now();
-        if (this.version == null) this.version = 0L;
+    }
+
+    @PostLoad
+    @PostPersist
+    protected void onStored() {
+        this.persisted = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
     }
 
     // KtxEvent interface implementation
@@ -96,11 +144,34 @@ public class SystemEvent implements KtxEvent<String> {
         return KtxEvent.super.toJson();
     }
 
+    /**
+     * @return the event as carried by Kafka
+     */
+    public KtxEventRecord toRecord() {
+        return new KtxEventRecord(id, timestamp, eventType, level, criticality, userId, ipAddress, message, source);
+    }
+
+    /**
+     * @return a new, not yet persisted, event holding the fields of the given one
+     */
+    public static SystemEvent of(KtxEventRecord event) {
+        return SystemEvent.builder()
+                .id(event.id())
+                .timestamp(event.timestamp())
+                .eventType(event.eventType())
+                .level(event.level())
+                .criticality(event.criticality())
+                .userId(event.userId())
+                .ipAddress(event.ipAddress())
+                .message(event.message())
+                .source(event.source())
+                .build();
+    }
+
     @Override
     public String toString() {
         return "SystemEvent{" +
                 "id=" + id +
-                ", version=" + version +
                 ", timestamp=" + timestamp +
                 ", eventType=" + eventType +
                 ", level=" + level +
@@ -0,0 +1,59 @@
+package com.kitano.core.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time-ordered UUIDs (version 7, RFC 9562).
+ * <p>
+ * The 48 most significant bits hold the Unix time in milliseconds, followed by a 12 bits
+ * counter and 62 random bits. Ids generated by this class are strictly increasing, so
+ * stored as {@code BINARY(16)} they are appended at the end of the clustered index instead
+ * of being inserted at random pages. Ids are not meant to be secret.
+ */
+public final class UuidV7 {
+
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static long lastMillis;
+    private static int sequence;
+
+    private UuidV7() {
+    }
+
+    /**
+     * @return a new time-ordered UUID, greater than all the ones previously generated
+     */
+    public static UUID randomUuid() {
+        long millis;
+        int seq;
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // start in the lower half so that many ids fit in the same millisecond
+                sequence = ThreadLocalRandom.current().nextInt(MAX_SEQUENCE / 2);
+            } else if (++sequence > MAX_SEQUENCE) {
+                // counter exhausted or clock going backwards: borrow the next millisecond
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        long msb = (millis << 16) | 0x7000L | seq;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * @param uuid a version 7 UUID
+     * @return the Unix time in milliseconds the UUID was generated at
+     */
+    public static long timestampOf(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,61 @@
+package com.kitano.core.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingQueueTest {
+
+    @Test
+    void shouldHandleBoundedBatchesAndFlushOnStop() {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        // the batches only fill up within the latency, the queue being flushed by stop
+        BatchingQueue<Integer> queue = new BatchingQueue<>("test-drain", 100, 3, 60_000,
+                batch -> batches.add(new ArrayList<>(batch)));
+        queue.start();
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertTrue(queue.stop(5_000));
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), batches.stream().flatMap(List::stream).toList());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3), "batches: " + batches);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void shouldOnlyAcceptItemsWhileRunning() {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        BatchingQueue<Integer> queue = new BatchingQueue<>("test-drain", 1, 1, 0, handled::addAll);
+
+        assertFalse(queue.offer(1));
+        queue.start();
+        assertTrue(queue.isRunning());
+        assertTrue(queue.stop(5_000));
+        assertFalse(queue.offer(2));
+        assertTrue(handled.isEmpty());
+    }
+
+    @Test
+    void shouldOutliveAFailingBatch() {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        BatchingQueue<Integer> queue = new BatchingQueue<>("test-drain", 10, 1, 0, batch -> {
+            if (batch.contains(1)) {
+                throw new IllegalStateException("database down");
+            }
+            handled.addAll(batch);
+        });
+        queue.start();
+
+        queue.offer(1);
+        queue.offer(2);
+        assertTrue(queue.stop(5_000));
+
+        assertEquals(List.of(2), handled);
+    }
+}
@@ -0,0 +1,120 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.core.model.UuidV7;
+import com.kitano.iface.messaging.KtxEventDeserializer;
+import com.kitano.iface.messaging.KtxEventSerializer;
+import com.kitano.iface.messaging.WireFormat;
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization cost of an auth-events record, Spring Kafka JSON serde
+ * into the {@link SystemEvent} entity against the {@link KtxEventRecord} serde. Run with
+ * {@code mvn test -pl homelab-core -am -Dbenchmark=true -Dtest=EventSerdeBenchmark
+ * -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSerdeBenchmark {
+
+    private static final String TOPIC = "auth-events";
+
+    private JsonSerializer<SystemEvent> springSerializer;
+    private JsonDeserializer<SystemEvent> springDeserializer;
+    private SystemEventSerializer entityBinarySerializer;
+    private KtxEventSerializer binarySerializer;
+    private KtxEventDeserializer deserializer;
+
+    private SystemEvent entity;
+    private KtxEventRecord record;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        springSerializer = new JsonSerializer<>();
+        springSerializer.setAddTypeInfo(false);
+        springDeserializer = new JsonDeserializer<>(SystemEvent.class, false);
+        entityBinarySerializer = new SystemEventSerializer(WireFormat.BINARY);
+        binarySerializer = new KtxEventSerializer(WireFormat.BINARY);
+        deserializer = new KtxEventDeserializer();
+
+        entity = SystemEvent.builder()
+                .id(UuidV7.randomUuid())
+                .timestamp(LocalDateTime.now())
+                .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
+                .level(KtxEvent.Level.WARNING)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .userId("0b7e4f4e-6c1a-4a8e-9d55-3f0e2b1c9a77")
+                .ipAddress("192.168.1.42")
+                .message("Bad credentials")
+                .source("auth-service")
+                .build();
+        record = entity.toRecord();
+        json = springSerializer.serialize(TOPIC, entity);
+        binary = binarySerializer.serialize(TOPIC, record);
+    }
+
+    @Benchmark
+    public byte[] serializeSpringJson() {
+        return springSerializer.serialize(TOPIC, entity);
+    }
+
+    @Benchmark
+    public byte[] serializeEntityBinary() {
+        return entityBinarySerializer.serialize(TOPIC, entity);
+    }
+
+    @Benchmark
+    public byte[] serializeRecordBinary() {
+        return binarySerializer.serialize(TOPIC, record);
+    }
+
+    @Benchmark
+    public SystemEvent deserializeSpringJson() {
+        return springDeserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public KtxEventRecord deserializeRecordJson() {
+        return deserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public KtxEventRecord deserializeRecordBinary() {
+        return deserializer.deserialize(TOPIC, binary);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EventSerdeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,39 @@
+package com.kitano.core.messaging;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTraceTest {
+
+    @Test
+    void headers_shouldRoundTrip() {
+        Instant created = Instant.parse("2026-10-18T09:00:00.123456Z");
+        EventTrace trace = EventTrace.start(Clock.fixed(created, ZoneOffset.UTC));
+        RecordHeaders headers = new RecordHeaders();
+
+        trace.writeTo(headers);
+        EventTrace read = EventTrace.readFrom(headers);
+
+        assertEquals(trace, read);
+        assertEquals(created, read.createdAt());
+        assertEquals(1_500, read.elapsedMicros(Clock.fixed(created.plus(Duration.ofNanos(1_500_000)), ZoneOffset.UTC)));
+    }
+
+    @Test
+    void readFrom_shouldIgnoreUntracedRecords() {
+        RecordHeaders headers = new RecordHeaders();
+        assertNull(EventTrace.readFrom(headers));
+
+        headers.add(EventTrace.TRACE_ID_HEADER, "trace".getBytes(StandardCharsets.UTF_8));
+        headers.add(EventTrace.CREATED_AT_HEADER, new byte[3]);
+        assertNull(EventTrace.readFrom(headers));
+    }
+}
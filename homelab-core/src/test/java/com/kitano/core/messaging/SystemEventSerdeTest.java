@@ -0,0 +1,66 @@
+package com.kitano.core.messaging;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.core.model.UuidV7;
+import com.kitano.iface.messaging.KtxEventCodec;
+import com.kitano.iface.messaging.WireFormat;
+import com.kitano.iface.model.KtxEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SystemEventSerdeTest {
+
+    private static SystemEvent event() {
+        return SystemEvent.builder()
+                .id(UuidV7.randomUuid())
+                .timestamp(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000))
+                .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
+                .level(KtxEvent.Level.WARNING)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .userId("0b7e4f4e-6c1a-4a8e-9d55-3f0e2b1c9a77")
+                .ipAddress("192.168.1.42")
+                .message("Bad credentials")
+                .source("auth-service")
+                .build();
+    }
+
+    @Test
+    void serde_shouldReadWhateverTheProducerFormat() {
+        SystemEvent event = event();
+        SystemEventDeserializer deserializer = new SystemEventDeserializer();
+
+        byte[] json = new SystemEventSerializer().serialize("auth-events", event);
+        byte[] binary = new SystemEventSerializer(WireFormat.BINARY).serialize("auth-events", event);
+
+        assertEquals('{', json[0]);
+        assertEquals(KtxEventCodec.VERSION_1, binary[0]);
+        for (byte[] data : new byte[][]{json, binary}) {
+            SystemEvent decoded = deserializer.deserialize("auth-events", data);
+            // a new entity, inserted even though its id is assigned
+            assertTrue(decoded.isNew());
+            assertEquals(event, decoded);
+        }
+    }
+
+    @Test
+    void toJson_shouldWriteIsoTimestamps() {
+        String json = event().toJson();
+
+        assertTrue(json.contains("\"timestamp\":\"2025-03-14T15:09:26.535897\""));
+        assertFalse(json.contains("\"new\""));
+    }
+
+    @Test
+    void record_shouldHoldEveryField() {
+        SystemEvent event = event();
+
+        SystemEvent copy = SystemEvent.of(event.toRecord());
+
+        assertTrue(copy.isNew());
+        assertEquals(event, copy);
+        assertEquals(event.toRecord(), copy.toRecord());
+    }
+}
@@ -0,0 +1,34 @@
+package com.kitano.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void randomUuid_shouldBeVersion7AndStrictlyIncreasing() {
+        UUID previous = UuidV7.randomUuid();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7.randomUuid();
+            assertEquals(7, next.version());
+            assertEquals(2, next.variant());
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) < 0,
+                    previous + " should be before " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void timestampOf_shouldReturnGenerationTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.randomUuid();
+
+        long timestamp = UuidV7.timestampOf(uuid);
+
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 1_000);
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestampOf(UUID.randomUUID()));
+    }
+}
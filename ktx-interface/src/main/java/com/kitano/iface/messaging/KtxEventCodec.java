@@ -0,0 +1,293 @@
+package com.kitano.iface.messaging;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import com.kitano.iface.model.KtxJson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Wire formats of {@link KtxEventRecord} on the auth-events and security-events topics.
+ * <p>
+ * Events are either JSON, as written by {@link KtxJson}, or binary. The binary format starts
+ * with a version byte, which never collides with the {@code '{'} starting a JSON event, so
+ * {@link #decode(byte[], int, int)} reads both and consumers can be upgraded before producers.
+ * The binary format is written and read without reflection: events are encoded in a per
+ * thread buffer, and sources and messages, a small set of values, are decoded to shared
+ * strings.
+ * <p>
+ * Binary format, version 1:
+ * <pre>
+ * u8      version
+ * u8      presence of id (bit 0), version (bit 1) and timestamp (bit 2)
+ * [16]    id, most significant bits first
+ * varlong version, never written, skipped when read
+ * varlong timestamp, zigzag encoded microseconds since the epoch, UTC
+ * u8      event type, level and criticality: ordinal + 1, 0 for null
+ * string  user id, IP address, message and source: varint length + 1, 0 for null, then UTF-8
+ * </pre>
+ * Enum constants are written by ordinal: new constants must be appended.
+ */
+public final class KtxEventCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_VERSION = 1 << 1;
+    private static final int HAS_TIMESTAMP = 1 << 2;
+
+    private static final KtxEvent.EventType[] EVENT_TYPES = KtxEvent.EventType.values();
+    private static final KtxEvent.Level[] LEVELS = KtxEvent.Level.values();
+    private static final KtxEvent.Criticality[] CRITICALITIES = KtxEvent.Criticality.values();
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(() -> new Writer(INITIAL_BUFFER_SIZE));
+
+    private static final StringInterner SOURCES = new StringInterner(16);
+    private static final StringInterner MESSAGES = new StringInterner(256);
+
+    private KtxEventCodec() {
+    }
+
+    public static byte[] toJson(KtxEventRecord event) {
+        try {
+            return KtxJson.writerFor(KtxEventRecord.class).writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize event", e);
+        }
+    }
+
+    public static byte[] encode(KtxEventRecord event) {
+        String userId = event.userId();
+        String ipAddress = event.ipAddress();
+        String message = event.message();
+        String source = event.source();
+        // fixed part, then each string at worst 3 bytes per char plus its length
+        int maxSize = 2 + 16 + 10 + 3 + maxSize(userId) + maxSize(ipAddress) + maxSize(message) + maxSize(source);
+        Writer out = WRITERS.get().reset(maxSize);
+
+        UUID id = event.id();
+        LocalDateTime timestamp = event.timestamp();
+        out.writeByte(VERSION_1);
+        out.writeByte((id != null ? HAS_ID : 0) | (timestamp != null ? HAS_TIMESTAMP : 0));
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+        if (timestamp != null) {
+            long micros = Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                    timestamp.getNano() / 1_000);
+            out.writeVarLong((micros << 1) ^ (micros >> 63));
+        }
+        out.writeByte(ordinal(event.eventType()));
+        out.writeByte(ordinal(event.level()));
+        out.writeByte(ordinal(event.criticality()));
+        out.writeString(userId);
+        out.writeString(ipAddress);
+        out.writeString(message);
+        out.writeString(source);
+        return out.toByteArray();
+    }
+
+    public static KtxEventRecord decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Reads an event in any of the supported formats.
+     *
+     * @throws IllegalArgumentException if the format is unknown or the data truncated
+     */
+    public static KtxEventRecord decode(byte[] data, int offset, int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Empty event");
+        }
+        if (data[offset] == '{') {
+            try {
+                return KtxJson.readerFor(KtxEventRecord.class).readValue(data, offset, length);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed JSON event", e);
+            }
+        }
+        if (data[offset] != VERSION_1) {
+            throw new IllegalArgumentException("Unknown event format: " + data[offset]);
+        }
+        try {
+            return decodeVersion1(new Reader(data, offset + 1, offset + length));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated event", e);
+        }
+    }
+
+    private static KtxEventRecord decodeVersion1(Reader in) {
+        int presence = in.readByte();
+        UUID id = null;
+        LocalDateTime timestamp = null;
+        if ((presence & HAS_ID) != 0) {
+            id = new UUID(in.readLong(), in.readLong());
+        }
+        if ((presence & HAS_VERSION) != 0) {
+            in.readVarLong();
+        }
+        if ((presence & HAS_TIMESTAMP) != 0) {
+            long zigzag = in.readVarLong();
+            long micros = (zigzag >>> 1) ^ -(zigzag & 1);
+            timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        }
+        KtxEvent.EventType eventType = constant(EVENT_TYPES, in.readByte());
+        KtxEvent.Level level = constant(LEVELS, in.readByte());
+        KtxEvent.Criticality criticality = constant(CRITICALITIES, in.readByte());
+        String userId = in.readString(null);
+        String ipAddress = in.readString(null);
+        String message = in.readString(MESSAGES);
+        String source = in.readString(SOURCES);
+        return new KtxEventRecord(id, timestamp, eventType, level, criticality, userId, ipAddress, message, source);
+    }
+
+    private static int ordinal(Enum<?> constant) {
+        return constant != null ? constant.ordinal() + 1 : 0;
+    }
+
+    private static <E extends Enum<E>> E constant(E[] constants, int code) {
+        if (code == 0) {
+            return null;
+        }
+        if (code > constants.length) {
+            throw new IllegalArgumentException("Unknown " + constants[0].getDeclaringClass().getSimpleName()
+                    + " ordinal: " + (code - 1));
+        }
+        return constants[code - 1];
+    }
+
+    private static int maxSize(String value) {
+        return value == null ? 1 : 5 + 3 * value.length();
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        Writer reset(int capacity) {
+            if (buffer.length < capacity) {
+                buffer = new byte[Math.max(capacity, buffer.length * 2)];
+            }
+            position = 0;
+            return this;
+        }
+
+        void writeByte(int value) {
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeByte(0);
+                return;
+            }
+            int length = value.length();
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                ascii = value.charAt(i) < 0x80;
+            }
+            if (ascii) {
+                writeVarLong(length + 1L);
+                for (int i = 0; i < length; i++) {
+                    buffer[position++] = (byte) value.charAt(i);
+                }
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1L);
+            System.arraycopy(utf8, 0, buffer, position, utf8.length);
+            position += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data, int position, int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int readByte() {
+            checkAvailable(1);
+            return data[position++] & 0xFF;
+        }
+
+        long readLong() {
+            checkAvailable(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = (byte) readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varlong");
+        }
+
+        String readString(StringInterner interner) {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkAvailable(length);
+            int start = position;
+            position += (int) length;
+            return interner != null
+                    ? interner.intern(data, start, (int) length)
+                    : new String(data, start, (int) length, StandardCharsets.UTF_8);
+        }
+
+        private void checkAvailable(long length) {
+            if (length > limit - position) {
+                throw new ArrayIndexOutOfBoundsException(length + " bytes past the end of the event");
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.kitano.iface.messaging;
+
+import com.kitano.iface.model.KtxEventRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Kafka deserializer of {@link KtxEventRecord}, reading both the JSON and the binary format
+ * whatever the producers use, see {@link KtxEventCodec}. Records backed by an array are
+ * decoded in place, without copy.
+ */
+public class KtxEventDeserializer implements Deserializer<KtxEventRecord> {
+
+    @Override
+    public KtxEventRecord deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return decode(topic, data, 0, data.length);
+    }
+
+    @Override
+    public KtxEventRecord deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (!data.hasArray()) {
+            return Deserializer.super.deserialize(topic, headers, data);
+        }
+        return decode(topic, data.array(), data.arrayOffset() + data.position(), data.remaining());
+    }
+
+    private static KtxEventRecord decode(String topic, byte[] data, int offset, int length) {
+        try {
+            return KtxEventCodec.decode(data, offset, length);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot deserialize event from topic " + topic, e);
+        }
+    }
+}
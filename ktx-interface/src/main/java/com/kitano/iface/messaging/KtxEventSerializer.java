@@ -0,0 +1,63 @@
+package com.kitano.iface.messaging;
+
+import com.kitano.iface.model.KtxEventRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kafka serializer of {@link KtxEventRecord}, JSON by default, see {@link KtxEventCodec}.
+ * <p>
+ * When created by Kafka, the format is read from the {@value #FORMAT_CONFIG} producer property.
+ */
+public class KtxEventSerializer implements Serializer<KtxEventRecord> {
+
+    public static final String FORMAT_CONFIG = "ktx.serde.format";
+
+    private WireFormat format;
+
+    public KtxEventSerializer() {
+        this(WireFormat.JSON);
+    }
+
+    public KtxEventSerializer(WireFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        format = formatOf(configs, format);
+    }
+
+    @Override
+    public byte[] serialize(String topic, KtxEventRecord event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return format == WireFormat.BINARY ? KtxEventCodec.encode(event) : KtxEventCodec.toJson(event);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot serialize event for topic " + topic, e);
+        }
+    }
+
+    public WireFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Reads the {@value #FORMAT_CONFIG} property of the given configuration.
+     */
+    public static WireFormat formatOf(Map<String, ?> configs, WireFormat defaultFormat) {
+        Object configured = configs.get(FORMAT_CONFIG);
+        if (configured instanceof WireFormat value) {
+            return value;
+        }
+        if (configured != null) {
+            return WireFormat.valueOf(configured.toString().trim().toUpperCase(Locale.ROOT));
+        }
+        return defaultFormat;
+    }
+}
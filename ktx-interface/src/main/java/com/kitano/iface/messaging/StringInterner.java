@@ -0,0 +1,52 @@
+package com.kitano.iface.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes UTF-8 strings of a small set of values, such as event sources and messages, to
+ * shared instances instead of allocating a new string each time.
+ * <p>
+ * A fixed size, direct mapped table: colliding values replace each other and are decoded
+ * again. Entries are immutable, so concurrent readers see either the old or the new entry,
+ * both valid, without any locking.
+ */
+final class StringInterner {
+
+    private static final int MAX_LENGTH = 64;
+
+    private final Entry[] entries;
+    private final int mask;
+
+    /**
+     * @param size number of slots, rounded up to a power of two
+     */
+    StringInterner(int size) {
+        int slots = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+        this.entries = new Entry[slots];
+        this.mask = slots - 1;
+    }
+
+    String intern(byte[] data, int offset, int length) {
+        if (length > MAX_LENGTH) {
+            return new String(data, offset, length, StandardCharsets.UTF_8);
+        }
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + data[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = entries[slot];
+        if (entry != null && entry.hash == hash
+                && Arrays.equals(entry.bytes, 0, entry.bytes.length, data, offset, offset + length)) {
+            return entry.value;
+        }
+        byte[] bytes = Arrays.copyOfRange(data, offset, offset + length);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        entries[slot] = new Entry(hash, bytes, value);
+        return value;
+    }
+
+    private record Entry(int hash, byte[] bytes, String value) {
+    }
+}
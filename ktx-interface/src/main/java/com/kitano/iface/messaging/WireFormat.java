@@ -0,0 +1,8 @@
+package com.kitano.iface.messaging;
+
+/**
+ * Format events are written in, see {@link KtxEventCodec}. Events are read whatever their format.
+ */
+public enum WireFormat {
+    JSON, BINARY
+}
@@ -1,7 +1,6 @@
 package com.kitano.iface.model;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.time.LocalDateTime;
 
@@ -19,10 +18,12 @@ public interface KtxEvent<T> {
 
     String getSource();
 
+    /**
+     * Serializes the event with the shared writer of its class, see {@link KtxJson}.
+     */
     default String toJson() {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.writeValueAsString(this);
+            return KtxJson.writerFor(getClass()).writeValueAsString(this);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to serialize event", e);
         }
@@ -0,0 +1,37 @@
+package com.kitano.iface.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Immutable event as carried by Kafka, without any persistence concern.
+ * <p>
+ * Holds the same fields as the stored events, and is what services read, evaluate and publish:
+ * the entities are only built to store events. See {@link com.kitano.iface.messaging.KtxEventCodec}
+ * for its wire formats.
+ */
+public record KtxEventRecord(UUID id,
+                             LocalDateTime timestamp,
+                             EventType eventType,
+                             Level level,
+                             Criticality criticality,
+                             String userId,
+                             String ipAddress,
+                             String message,
+                             String source) implements KtxEvent<String> {
+
+    @Override
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getPayload() {
+        return userId;
+    }
+
+    @Override
+    public String getSource() {
+        return source;
+    }
+}
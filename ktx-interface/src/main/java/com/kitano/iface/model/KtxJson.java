@@ -0,0 +1,54 @@
+package com.kitano.iface.model;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * The JSON mapper shared by the events, configured once.
+ * <p>
+ * Dates are written as ISO strings and unknown properties are ignored, as with the Spring
+ * Kafka JSON serializers. Writers and readers are cached per type and resolve their
+ * serializers when created, so the reflection cost is paid once per type, not per event.
+ */
+public final class KtxJson {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return MAPPER.writerFor(type);
+        }
+    };
+
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
+
+    private KtxJson() {
+    }
+
+    /**
+     * @return the cached writer of the given type
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.get(type);
+    }
+
+    /**
+     * @return the cached reader of the given type
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.get(type);
+    }
+}
@@ -0,0 +1,127 @@
+package com.kitano.iface.messaging;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KtxEventCodecTest {
+
+    private static KtxEventRecord event() {
+        return new KtxEventRecord(UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057"),
+                LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000),
+                KtxEvent.EventType.AUTHENTICATION_FAILURE,
+                KtxEvent.Level.WARNING,
+                KtxEvent.Criticality.REGULAR,
+                "0b7e4f4e-6c1a-4a8e-9d55-3f0e2b1c9a77",
+                "192.168.1.42",
+                "Bad credentials",
+                "auth-service");
+    }
+
+    @Test
+    void binaryRoundTrip_shouldKeepEveryField() {
+        KtxEventRecord event = event();
+
+        assertEquals(event, KtxEventCodec.decode(KtxEventCodec.encode(event)));
+    }
+
+    @Test
+    void binaryRoundTrip_shouldKeepNullsAndNonAsciiStrings() {
+        KtxEventRecord event = new KtxEventRecord(null,
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000),
+                KtxEvent.EventType.SECURITY, null, null, null, "",
+                "Connexion refusée à l'utilisateur ⚠", null);
+
+        assertEquals(event, KtxEventCodec.decode(KtxEventCodec.encode(event)));
+    }
+
+    @Test
+    void binary_shouldBeMuchSmallerThanJson() {
+        byte[] binary = KtxEventCodec.encode(event());
+        byte[] json = KtxEventCodec.toJson(event());
+
+        assertEquals(KtxEventCodec.VERSION_1, binary[0]);
+        assertTrue(binary.length * 2 < json.length, binary.length + " bytes vs " + json.length + " in JSON");
+    }
+
+    @Test
+    void decode_shouldShareSourcesAndMessages() {
+        byte[] binary = KtxEventCodec.encode(event());
+
+        KtxEventRecord first = KtxEventCodec.decode(binary);
+        KtxEventRecord second = KtxEventCodec.decode(binary.clone());
+
+        assertSame(first.source(), second.source());
+        assertSame(first.message(), second.message());
+        assertNotSame(first.userId(), second.userId());
+    }
+
+    @Test
+    void decode_shouldSkipTheVersionOfStoredEvents() {
+        // version 1 event with an id, a version (42) and nothing else
+        byte[] binary = new byte[2 + 16 + 1 + 3 + 4];
+        binary[0] = KtxEventCodec.VERSION_1;
+        binary[1] = 0b011;
+        binary[2] = 1;
+        binary[18] = 42;
+
+        KtxEventRecord event = KtxEventCodec.decode(binary);
+
+        assertEquals(new UUID(1L << 56, 0L), event.id());
+        assertNull(event.timestamp());
+        assertNull(event.eventType());
+    }
+
+    @Test
+    void decode_shouldFallBackToJson() {
+        String stored = "{\"id\":\"01890a5d-ac96-774b-bcce-b302099a8057\",\"version\":3,"
+                + "\"timestamp\":\"2025-03-14T15:09:26.535897\",\"eventType\":\"AUTHENTICATION_FAILURE\","
+                + "\"level\":\"WARNING\",\"criticality\":\"REGULAR\","
+                + "\"userId\":\"0b7e4f4e-6c1a-4a8e-9d55-3f0e2b1c9a77\",\"ipAddress\":\"192.168.1.42\","
+                + "\"message\":\"Bad credentials\",\"source\":\"auth-service\","
+                + "\"payload\":\"0b7e4f4e-6c1a-4a8e-9d55-3f0e2b1c9a77\"}";
+
+        assertEquals(event(), KtxEventCodec.decode(stored.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(event(), KtxEventCodec.decode(KtxEventCodec.toJson(event())));
+    }
+
+    @Test
+    void serde_shouldReadWhateverTheProducerFormatWithoutCopy() {
+        KtxEventSerializer serializer = new KtxEventSerializer();
+        KtxEventDeserializer deserializer = new KtxEventDeserializer();
+
+        byte[] json = serializer.serialize("auth-events", event());
+        serializer.configure(Map.of(KtxEventSerializer.FORMAT_CONFIG, "binary"), false);
+        byte[] binary = serializer.serialize("auth-events", event());
+        byte[] framed = new byte[binary.length + 10];
+        System.arraycopy(binary, 0, framed, 7, binary.length);
+
+        assertEquals(WireFormat.BINARY, serializer.getFormat());
+        assertEquals(event(), deserializer.deserialize("auth-events", json));
+        assertEquals(event(), deserializer.deserialize("auth-events", null,
+                ByteBuffer.wrap(framed, 7, binary.length)));
+        assertNull(deserializer.deserialize("auth-events", (byte[]) null));
+    }
+
+    @Test
+    void deserialize_shouldRejectUnknownOrTruncatedData() {
+        KtxEventDeserializer deserializer = new KtxEventDeserializer();
+        byte[] binary = KtxEventCodec.encode(event());
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("auth-events", new byte[]{42}));
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("auth-events", Arrays.copyOf(binary, binary.length - 3)));
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("auth-events", null, ByteBuffer.wrap(binary, 0, binary.length - 3)));
+    }
+}
@@ -0,0 +1,57 @@
+package ktx.kitano.security.service.application;
+
+import com.kitano.core.model.SystemEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of an event in the {@code (timestamp DESC, id DESC)} order of the event store.
+ * <p>
+ * A page of events starts right after the cursor of the last event of the previous page, so
+ * pages are read with an index range scan whatever their depth, and stay consistent while
+ * new events are inserted. Cursors are exchanged with clients as opaque strings.
+ *
+ * @param timestamp the timestamp of the event
+ * @param id        the id of the event
+ */
+public record EventCursor(LocalDateTime timestamp, UUID id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static EventCursor of(SystemEvent event) {
+        return new EventCursor(event.getTimestamp(), event.getId());
+    }
+
+    /**
+     * @return the opaque, URL safe form of the cursor
+     */
+    public String encode() {
+        String value = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor returned by {@link #encode()}.
+     *
+     * @param cursor the opaque cursor
+     * @return the cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static EventCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new EventCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    UUID.fromString(value.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
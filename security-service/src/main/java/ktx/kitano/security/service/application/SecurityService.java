@@ -1,11 +1,18 @@
 package ktx.kitano.security.service.application;
 
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.iface.model.KtxEvent;
-import ktx.kitano.security.service.config.SecurityProperties;
-import ktx.kitano.security.service.config.UnusualBehaviourProperties;
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.rule.SecurityRule;
+import ktx.kitano.security.service.application.rule.SecurityRuleEngine;
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
 import ktx.kitano.security.service.infrastructure.messaging.SecurityEventProducer;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,10 +20,13 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
-import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_SUCCESS;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 
 /**
@@ -28,156 +38,168 @@ public class SecurityService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SecurityService.class);
 
     private final SecurityEventStore<SystemEvent> eventStore;
+    private final SecurityEventWriter eventWriter;
     private final SecurityEventProducer producer;
 
-    private final SecurityProperties securityProperties;
+    private final SecurityRuleEngine ruleEngine;
+
+    private final DetectionStateCache stateCache;
+
+    private final IpFailureTracker ipFailureTracker;
 
-    private final UnusualBehaviourProperties usualBehaviourProperties;
+    private final AlertLatencyTracker latencyTracker;
 
     @Autowired
     public SecurityService(SecurityEventStore<SystemEvent> eventStore,
+                           SecurityEventWriter eventWriter,
                            SecurityEventProducer producer,
-                           SecurityProperties securityProperties,
-                           UnusualBehaviourProperties usualBehaviourProperties) {
+                           SecurityRuleEngine ruleEngine,
+                           DetectionStateCache stateCache,
+                           IpFailureTracker ipFailureTracker,
+                           AlertLatencyTracker latencyTracker) {
         this.eventStore = eventStore;
+        this.eventWriter = eventWriter;
         this.producer = producer;
-        this.securityProperties = securityProperties;
-        this.usualBehaviourProperties = usualBehaviourProperties;
+        this.ruleEngine = ruleEngine;
+        this.stateCache = stateCache;
+        this.ipFailureTracker = ipFailureTracker;
+        this.latencyTracker = latencyTracker;
     }
 
     /**
      * Checks the system for security issues based on the provided event.
+     *
+     * @param event the event to secure the system with
+     * @see #secureAll(List)
+     */
+    public void secure(KtxEventRecord event) {
+        secureAll(List.of(event));
+    }
+
+    /**
+     * Checks the system for security issues based on the provided events.
      * <p>
-     * The system is checked for the following security issues:
-     * <ul>
-     *     <li>Too many failed login attempts</li>
-     *     <li>Unusual IP pattern detected</li>
-     *     <li>Suspicious login success after failure</li>
-     *     <li>Unusual IP activity</li>
-     *     <li>Too many login failures</li>
-     *     <li>Too many login attempts</li>
-     *     <li>Too many login failures</li>
-     *   </ul>
-     *   If any of these issues are detected, an exception is thrown.
+     * Events are grouped by user, keeping their order, and each user's
+     * {@link UserDetectionState} is loaded once for the whole group: the store is only read to
+     * warm a state up, not on every event. Every enabled {@link SecurityRule} is evaluated once
+     * per event by the {@link SecurityRuleEngine} against the state as it was before that
+     * event, then the event and its alerts are recorded in the state, and failures in the
+     * {@link IpFailureTracker}. Alerts of all the events are handed to the
+     * {@link SecurityEventWriter} together at the end and sent to the event bus once written:
+     * the calling thread does not wait for the database.
      * <p>
+     * Events and alerts stay immutable {@link KtxEventRecord}s all along, they are only mapped
+     * to entities by the writer.
      *
-     * @param event the event to secure the system with
+     * @param events the events to secure the system with
      */
+    public void secureAll(List<KtxEventRecord> events) {
+        secureAll(events, DetectionStateCache.NO_PARTITION);
+    }
 
-    public void secure(SystemEvent event) {
-
-        List<SystemEvent> events = eventStore.findByUserId(event.getUserId());
-        if (events == null || events.isEmpty()) return;
-
-        if (events.size() >= 3) {
-            boolean previousSuccesses = events.stream().sorted((e1, e2) -> e2.getTimestamp().compareTo(e1.getTimestamp()))
-                    .limit(3)
-                    .allMatch(e -> KtxEvent.EventType.AUTHENTICATION_SUCCESS.equals(e.eventType()));
-
-            if (previousSuccesses && KtxEvent.EventType.AUTHENTICATION_FAILURE.equals(event.eventType())) {
-                LOGGER.info("User {} has an unusual login pattern", event.getUserId());
-                SystemEvent.SystemEventBuilder eventBuilder = SystemEvent.builder()
-                        .eventType(KtxEvent.EventType.UNUSUAL_BEHAVIOR)
-                        .level(KtxEvent.Level.WARNING)
-                        .criticality(KtxEvent.Criticality.REGULAR)
-                        .userId(event.getUserId())
-                        .ipAddress(event.getIpAddress())
-                        .message("Unusual login pattern detected")
-                        .source("security-service");
-                logEvent(eventBuilder.build());
-            }
-        }
+    /**
+     * Same as {@link #secureAll(List)} for events consumed from a single auth-events partition.
+     * The partition is remembered in the users' states so that they can be evicted once it is
+     * revoked from this instance.
+     *
+     * @param events    the events to secure the system with
+     * @param partition the partition the events were consumed from
+     */
+    public void secureAll(List<KtxEventRecord> events, int partition) {
+        secureAll(events, null, partition);
+    }
 
-        boolean onlyFailures = events.stream()
-                .allMatch(e -> KtxEvent.EventType.AUTHENTICATION_FAILURE.equals(e.eventType()));
-
-        if (onlyFailures && KtxEvent.EventType.AUTHENTICATION_FAILURE.equals(event.eventType())) {
-            LOGGER.info("User {} has reached the maximum number of failed login attempts", event.getUserId());
-            SystemEvent.SystemEventBuilder eventBuilder = SystemEvent.builder()
-                    .eventType(KtxEvent.EventType.UNUSUAL_BEHAVIOR)
-                    .level(KtxEvent.Level.WARNING)
-                    .criticality(KtxEvent.Criticality.REGULAR)
-                    .userId(event.getUserId())
-                    .ipAddress(event.getIpAddress())
-                    .message("Maximum number of failed login attempts reached")
-                    .source("security-service");
-            logEvent(eventBuilder.build());
+    /**
+     * Same as {@link #secureAll(List, int)} for traced events: the alerts raised by an event
+     * carry its {@link EventTrace}, and their latency is recorded by the
+     * {@link AlertLatencyTracker} once they are sent.
+     *
+     * @param events    the events to secure the system with
+     * @param traces    the traces of the events, in the same order, null for untraced events
+     * @param partition the partition the events were consumed from
+     */
+    public void secureAll(List<KtxEventRecord> events, List<EventTrace> traces, int partition) {
+        Map<String, List<KtxEventRecord>> eventsByUser = new LinkedHashMap<>();
+        for (KtxEventRecord event : events) {
+            eventsByUser.computeIfAbsent(event.userId(), userId -> new ArrayList<>()).add(event);
+        }
+        // only looked up when an event raises alerts
+        Map<KtxEventRecord, EventTrace> tracesByEvent = null;
+        if (traces != null) {
+            tracesByEvent = new IdentityHashMap<>(events.size());
+            for (int i = 0; i < events.size(); i++) {
+                tracesByEvent.put(events.get(i), traces.get(i));
+            }
         }
 
-        long ipCount = events.stream()
-                .map(SystemEvent::getIpAddress)
-                .distinct()
-                .count();
-
-        if (ipCount > securityProperties.getMaxIpCount()) {
-            LOGGER.warn("Unusual IP activity for user {}", event.getUserId());
-            SystemEvent.SystemEventBuilder eventBuilder = SystemEvent.builder()
-                    .eventType(KtxEvent.EventType.UNUSUAL_BEHAVIOR)
-                    .level(KtxEvent.Level.WARNING)
-                    .criticality(KtxEvent.Criticality.REGULAR)
-                    .userId(event.getUserId())
-                    .ipAddress(event.getIpAddress())
-                    .message("Unusual IP activity detected")
-                    .source("security-service");
-
-            logEvent(eventBuilder.build());
+        List<KtxEventRecord> alerts = new ArrayList<>();
+        List<EventTrace> alertTraces = tracesByEvent != null ? new ArrayList<>() : null;
+        for (List<KtxEventRecord> userEvents : eventsByUser.values()) {
+            UserDetectionState state = stateCache.get(userEvents.get(0), partition);
+            for (KtxEventRecord event : userEvents) {
+                List<KtxEventRecord> eventAlerts = ruleEngine.evaluate(event, state);
+                state.record(event);
+                ipFailureTracker.record(event);
+                for (KtxEventRecord alert : eventAlerts) {
+                    state.record(alert);
+                    alerts.add(alert);
+                    if (alertTraces != null) {
+                        alertTraces.add(tracesByEvent.get(event));
+                    }
+                }
+            }
         }
 
-        SystemEvent.SystemEventBuilder eventBuilder = SystemEvent.builder();
-
-        if (events.size() >= 2 &&
-                events.get(events.size() - 1).eventType() == AUTHENTICATION_SUCCESS &&
-                events.get(events.size() - 2).eventType() == AUTHENTICATION_FAILURE) {
-            LOGGER.info("Suspicious login success after failure for user {}", event.getUserId());
-            eventBuilder.eventType(KtxEvent.EventType.UNUSUAL_BEHAVIOR)
-                    .level(KtxEvent.Level.WARNING)
-                    .criticality(KtxEvent.Criticality.REGULAR)
-                    .userId(event.getUserId())
-                    .ipAddress(event.getIpAddress())
-                    .message("Suspicious login success after failure")
-                    .source("security-service");
-
-            logEvent(eventBuilder.build());
+        if (!alerts.isEmpty()) {
+            logAlerts(alerts, alertTraces);
         }
+    }
 
-        long recentUnusualBehaviorCount = events.stream()
-                .filter(e -> e.eventType() == KtxEvent.EventType.UNUSUAL_BEHAVIOR)
-                .filter(e -> e.getTimestamp() != null &&
-                        e.getTimestamp().isAfter(LocalDateTime.now().minusDays(usualBehaviourProperties.getDays())))
-                .count();
-
-        if (recentUnusualBehaviorCount >= usualBehaviourProperties.getCount()) {
-            LOGGER.warn("User {} has {} unusual behaviors in last {} days",
-                    event.getUserId(), recentUnusualBehaviorCount, usualBehaviourProperties.getDays());
-
-            eventBuilder.
-                    eventType(KtxEvent.EventType.SECURITY).
-                    level(KtxEvent.Level.ERROR).
-                    criticality(KtxEvent.Criticality.CRITICAL).
-                    userId(event.getUserId()).
-                    ipAddress(event.getIpAddress()).
-                    message("Repeated unusual behavior detected").
-                    source("security-service");
-            logEvent(eventBuilder.build());
+    /**
+     * Persists the alerts and sends them to the event bus once written. The alerts are
+     * expected to be recorded in the detection state already.
+     *
+     * @param alerts the alerts to log
+     * @param traces the traces of the alerts, in the same order, null if none is traced
+     */
+    private void logAlerts(List<KtxEventRecord> alerts, List<EventTrace> traces) {
+        List<SystemEvent> entities = new ArrayList<>(alerts.size());
+        for (KtxEventRecord alert : alerts) {
+            entities.add(SystemEvent.of(alert));
         }
+        eventWriter.writeAll(entities).whenComplete((savedEvents, e) -> {
+            if (e != null) {
+                LOGGER.error("Failed to log {} alerts: {}", alerts.size(), e.getMessage());
+                return;
+            }
+            // the alerts are complete already, nothing is assigned by the store
+            for (int i = 0; i < alerts.size(); i++) {
+                KtxEventRecord alert = alerts.get(i);
+                EventTrace trace = traces != null ? traces.get(i) : null;
+                CompletableFuture<?> sent = producer.sendEvent(alert, trace);
+                if (trace != null) {
+                    // the alert is published once Kafka acknowledged it
+                    sent.thenRun(() -> latencyTracker.record(trace, alert));
+                }
+            }
+        });
     }
 
     /**
-     * Persists the provided event and sends it to the event bus.
+     * Persists the provided event through the {@link SecurityEventWriter} and sends it to the
+     * event bus once written, along with its {@link SystemEvent#getTrace() trace} if any.
      *
      * @param event the event to log
-     * @return the saved event
+     * @return a future completed with the saved event, or exceptionally if it could not be saved
      */
-    public SystemEvent logEvent(SystemEvent event) {
-        SystemEvent savedEvent = null;
-        try {
-            savedEvent = eventStore.save(event);
-            producer.sendEvent(savedEvent);
-        } catch (Exception e) {
-            LOGGER.error("Failed to log event: {}", e.getMessage());
-            return null;
-        }
-        return savedEvent;
+    public CompletableFuture<SystemEvent> logEvent(SystemEvent event) {
+        EventTrace trace = event.getTrace();
+        return eventWriter.write(event).thenApply(savedEvent -> {
+            KtxEventRecord record = savedEvent.toRecord();
+            producer.sendEvent(record, trace);
+            stateCache.recordIfPresent(record);
+            return savedEvent;
+        });
     }
 
     public List<SystemEvent> findByType(KtxEvent.EventType eventType) {
@@ -188,6 +210,33 @@ public class SecurityService {
         return eventStore.findAllByOrder(direction);
     }
 
+    /**
+     * Returns the page of events following the given cursor, the most recent first.
+     *
+     * @param after the cursor of the last event of the previous page, null for the first page
+     * @param limit the max number of events
+     * @return the events
+     */
+    public List<SystemEvent> findPage(EventCursor after, int limit) {
+        if (after == null) {
+            return eventStore.findPage(null, null, limit);
+        }
+        return eventStore.findPage(after.timestamp(), after.id(), limit);
+    }
+
+    /**
+     * Streams the events of the given time range, the most recent first, without loading
+     * them in memory.
+     *
+     * @param from     the lower bound of the time range
+     * @param to       the upper bound of the time range
+     * @param consumer the consumer of the events
+     * @return the number of streamed events
+     */
+    public long streamAll(LocalDateTime from, LocalDateTime to, Consumer<? super SystemEvent> consumer) {
+        return eventStore.streamAll(from, to, consumer);
+    }
+
     public SystemEvent findById(String id) {
         return eventStore.findById(id);
     }
@@ -0,0 +1,49 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
+
+/**
+ * Trips once when the failures from an IP address within the failure window reach the maximum,
+ * whatever the targeted users. The failures are recorded in the {@link IpFailureTracker} by the
+ * security service, this rule only reads them.
+ */
+@Component
+@Order(3)
+public class IpFailureThresholdRule implements SecurityRule {
+
+    public static final String NAME = "ip-failure-threshold";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IpFailureThresholdRule.class);
+
+    private final SecurityProperties properties;
+    private final IpFailureTracker ipFailureTracker;
+
+    public IpFailureThresholdRule(SecurityProperties properties, IpFailureTracker ipFailureTracker) {
+        this.properties = properties;
+        this.ipFailureTracker = ipFailureTracker;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        if (event.eventType() != AUTHENTICATION_FAILURE || event.ipAddress() == null
+                || ipFailureTracker.countFailures(event.ipAddress(), event.timestamp()) + 1 != properties.getMaxFailures()) {
+            return null;
+        }
+        LOGGER.warn("IP address {} has reached the maximum number of failed login attempts", event.ipAddress());
+        return SecurityAlert.unusualBehaviour("Maximum number of failed login attempts reached for IP address");
+    }
+}
@@ -0,0 +1,45 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.UnusualBehaviourProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Escalates users with too many unusual behaviours over the last days.
+ */
+@Component
+@Order(6)
+public class RepeatedUnusualBehaviourRule implements SecurityRule {
+
+    public static final String NAME = "repeated-unusual-behavior";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepeatedUnusualBehaviourRule.class);
+
+    private final UnusualBehaviourProperties properties;
+
+    public RepeatedUnusualBehaviourRule(UnusualBehaviourProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        int count = state.countUnusualBehavioursSince(LocalDateTime.now().minusDays(properties.getDays()));
+        if (count < properties.getCount()) {
+            return null;
+        }
+        LOGGER.warn("User {} has {} unusual behaviors in last {} days",
+                event.userId(), count, properties.getDays());
+        return SecurityAlert.security("Repeated unusual behavior detected");
+    }
+}
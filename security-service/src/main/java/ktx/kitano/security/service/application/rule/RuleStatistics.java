@@ -0,0 +1,18 @@
+package ktx.kitano.security.service.application.rule;
+
+/**
+ * Snapshot of the evaluation statistics of a {@link SecurityRule}.
+ */
+public record RuleStatistics(
+        String name,
+        boolean enabled,
+        long evaluations,
+        long alerts,
+        long totalNanos,
+        long maxNanos
+) {
+
+    public long meanNanos() {
+        return evaluations == 0 ? 0 : totalNanos / evaluations;
+    }
+}
@@ -0,0 +1,42 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.core.model.UuidV7;
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alert raised by a {@link SecurityRule}.
+ */
+public record SecurityAlert(
+        KtxEvent.EventType eventType,
+        KtxEvent.Level level,
+        KtxEvent.Criticality criticality,
+        String message
+) {
+
+    public static final String SOURCE = "security-service";
+
+    public static SecurityAlert unusualBehaviour(String message) {
+        return new SecurityAlert(KtxEvent.EventType.UNUSUAL_BEHAVIOR, KtxEvent.Level.WARNING,
+                KtxEvent.Criticality.REGULAR, message);
+    }
+
+    public static SecurityAlert security(String message) {
+        return new SecurityAlert(KtxEvent.EventType.SECURITY, KtxEvent.Level.ERROR,
+                KtxEvent.Criticality.CRITICAL, message);
+    }
+
+    /**
+     * Builds the event to log for this alert. Its id is assigned here, so the alert is complete
+     * before being stored.
+     *
+     * @param trigger the event that tripped the rule
+     * @return the alert event
+     */
+    public KtxEventRecord toEvent(KtxEventRecord trigger) {
+        return new KtxEventRecord(UuidV7.randomUuid(), LocalDateTime.now(), eventType, level, criticality,
+                trigger.userId(), trigger.ipAddress(), message, SOURCE);
+    }
+}
@@ -0,0 +1,28 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+
+/**
+ * A detection rule evaluated by the {@link SecurityRuleEngine} for every incoming event.
+ * <p>
+ * Rules only read the user's {@link UserDetectionState}, which reflects the events received
+ * before the evaluated one, and must run in constant time: they are never given the
+ * user's history.
+ */
+public interface SecurityRule {
+
+    /**
+     * @return the unique name of the rule, used to enable or disable it
+     */
+    String name();
+
+    /**
+     * Evaluates the rule for the given event.
+     *
+     * @param event the incoming event
+     * @param state the state of the event's user
+     * @return the alert to raise, or null if the rule does not trip
+     */
+    SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state);
+}
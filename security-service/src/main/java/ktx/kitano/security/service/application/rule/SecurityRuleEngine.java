@@ -0,0 +1,135 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates every enabled {@link SecurityRule} against an incoming event in a single pass.
+ * <p>
+ * Enabled rules are resolved once, when the engine is created, so evaluating an event only
+ * walks a fixed array of rules over the user's {@link UserDetectionState}. The engine keeps
+ * the number of evaluations and alerts, and the evaluation time, of each rule, exported as the
+ * {@code security.rule.evaluation} and {@code security.rule.alerts} meters tagged by rule.
+ */
+@Component
+public class SecurityRuleEngine implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityRuleEngine.class);
+
+    private final List<SecurityRule> rules;
+    private final SecurityRule[] enabledRules;
+    private final Timing[] timings;
+
+    public SecurityRuleEngine(List<SecurityRule> rules, SecurityRulesProperties properties) {
+        this.rules = List.copyOf(rules);
+        this.enabledRules = rules.stream()
+                .filter(rule -> properties.isEnabled(rule.name()))
+                .toArray(SecurityRule[]::new);
+        this.timings = new Timing[enabledRules.length];
+        for (int i = 0; i < timings.length; i++) {
+            timings[i] = new Timing();
+        }
+        LOGGER.info("Security rules enabled: {}", rules.stream()
+                .filter(rule -> properties.isEnabled(rule.name()))
+                .map(SecurityRule::name)
+                .toList());
+    }
+
+    /**
+     * Evaluates the enabled rules for the given event. The state is not modified by the
+     * engine: recording the event is left to the caller, once every rule has seen the state
+     * as it was before the event.
+     *
+     * @param event the incoming event
+     * @param state the state of the event's user
+     * @return the alert events to log, empty if no rule tripped
+     */
+    public List<KtxEventRecord> evaluate(KtxEventRecord event, UserDetectionState state) {
+        List<KtxEventRecord> alerts = null;
+        for (int i = 0; i < enabledRules.length; i++) {
+            long start = System.nanoTime();
+            SecurityAlert alert = enabledRules[i].evaluate(event, state);
+            timings[i].record(System.nanoTime() - start, alert != null);
+            if (alert != null) {
+                if (alerts == null) {
+                    alerts = new ArrayList<>(2);
+                }
+                alerts.add(alert.toEvent(event));
+            }
+        }
+        return alerts != null ? alerts : List.of();
+    }
+
+    /**
+     * @return the statistics of every known rule, disabled ones included
+     */
+    public List<RuleStatistics> statistics() {
+        List<RuleStatistics> statistics = new ArrayList<>(rules.size());
+        for (SecurityRule rule : rules) {
+            int index = indexOf(rule);
+            if (index < 0) {
+                statistics.add(new RuleStatistics(rule.name(), false, 0, 0, 0, 0));
+            } else {
+                Timing timing = timings[index];
+                statistics.add(new RuleStatistics(rule.name(), true,
+                        timing.evaluations.sum(), timing.alerts.sum(), timing.totalNanos.sum(), timing.maxNanos.get()));
+            }
+        }
+        return statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < enabledRules.length; i++) {
+            Timing timing = timings[i];
+            FunctionTimer.builder("security.rule.evaluation", timing,
+                            t -> t.evaluations.sum(), t -> t.totalNanos.sum(), TimeUnit.NANOSECONDS)
+                    .description("Evaluations of a security rule")
+                    .tag("rule", enabledRules[i].name())
+                    .register(registry);
+            FunctionCounter.builder("security.rule.alerts", timing, t -> t.alerts.sum())
+                    .description("Alerts raised by a security rule")
+                    .tag("rule", enabledRules[i].name())
+                    .register(registry);
+        }
+    }
+
+    private int indexOf(SecurityRule rule) {
+        for (int i = 0; i < enabledRules.length; i++) {
+            if (enabledRules[i] == rule) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Timing {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder alerts = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, boolean alert) {
+            evaluations.increment();
+            totalNanos.add(nanos);
+            if (alert) {
+                alerts.increment();
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_SUCCESS;
+
+/**
+ * Reports a successful login right after a failed one.
+ */
+@Component
+@Order(5)
+public class SuccessAfterFailureRule implements SecurityRule {
+
+    public static final String NAME = "success-after-failure";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SuccessAfterFailureRule.class);
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        if (event.eventType() != AUTHENTICATION_SUCCESS || state.recentType(0) != AUTHENTICATION_FAILURE) {
+            return null;
+        }
+        LOGGER.info("Suspicious login success after failure for user {}", event.userId());
+        return SecurityAlert.unusualBehaviour("Suspicious login success after failure");
+    }
+}
@@ -0,0 +1,41 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports users seen from more distinct IP addresses than allowed.
+ */
+@Component
+@Order(4)
+public class UnusualIpActivityRule implements SecurityRule {
+
+    public static final String NAME = "unusual-ip-activity";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnusualIpActivityRule.class);
+
+    private final SecurityProperties properties;
+
+    public UnusualIpActivityRule(SecurityProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        if (state.distinctIpCount(event.ipAddress()) <= properties.getMaxIpCount()) {
+            return null;
+        }
+        LOGGER.warn("Unusual IP activity for user {}", event.userId());
+        return SecurityAlert.unusualBehaviour("Unusual IP activity detected");
+    }
+}
@@ -0,0 +1,45 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_SUCCESS;
+
+/**
+ * Reports a login failure following a streak of successful logins.
+ */
+@Component
+@Order(1)
+public class UnusualLoginPatternRule implements SecurityRule {
+
+    public static final String NAME = "unusual-login-pattern";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnusualLoginPatternRule.class);
+
+    private final SecurityRulesProperties properties;
+
+    public UnusualLoginPatternRule(SecurityRulesProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        if (event.eventType() != AUTHENTICATION_FAILURE
+                || !state.lastTypesAre(AUTHENTICATION_SUCCESS, properties.getSuccessStreak())) {
+            return null;
+        }
+        LOGGER.info("User {} has an unusual login pattern", event.userId());
+        return SecurityAlert.unusualBehaviour("Unusual login pattern detected");
+    }
+}
@@ -0,0 +1,44 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
+
+/**
+ * Trips once when the failures of a user within the failure window reach the maximum.
+ */
+@Component
+@Order(2)
+public class UserFailureThresholdRule implements SecurityRule {
+
+    public static final String NAME = "user-failure-threshold";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserFailureThresholdRule.class);
+
+    private final SecurityProperties properties;
+
+    public UserFailureThresholdRule(SecurityProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+        if (event.eventType() != AUTHENTICATION_FAILURE
+                || state.countFailures(event.timestamp()) + 1 != properties.getMaxFailures()) {
+            return null;
+        }
+        LOGGER.info("User {} has reached the maximum number of failed login attempts", event.userId());
+        return SecurityAlert.unusualBehaviour("Maximum number of failed login attempts reached");
+    }
+}
@@ -0,0 +1,193 @@
+package ktx.kitano.security.service.application.state;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ktx.kitano.security.service.config.DetectionProperties;
+import ktx.kitano.security.service.config.SecurityProperties;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of {@link UserDetectionState}, one per user.
+ * <p>
+ * The event store is only read when a user is not cached yet: the user's most recent
+ * history is then mapped back to records and replayed into a fresh state. The least recently used states are evicted
+ * once {@link DetectionProperties#getMaxCachedUsers()} is reached.
+ * <p>
+ * Events are keyed by user id, so a user's events are consumed from a single partition.
+ * Each state remembers that partition, which lets the states of revoked partitions be
+ * dropped on rebalance: the new owner of the partition warms them up from the store.
+ */
+@Component
+public class DetectionStateCache implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DetectionStateCache.class);
+
+    /**
+     * Partition of states fed outside of the auth-events listener, never evicted on rebalance.
+     */
+    public static final int NO_PARTITION = -1;
+
+    private final SecurityEventStore<SystemEvent> eventStore;
+    private final DetectionProperties properties;
+    private final SecurityProperties securityProperties;
+    private final Map<String, UserDetectionState> states;
+
+    public DetectionStateCache(SecurityEventStore<SystemEvent> eventStore,
+                               DetectionProperties properties,
+                               SecurityProperties securityProperties) {
+        this.eventStore = eventStore;
+        this.properties = properties;
+        this.securityProperties = securityProperties;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserDetectionState> eldest) {
+                return size() > properties.getMaxCachedUsers();
+            }
+        };
+    }
+
+    /**
+     * Returns the state of the user the given event belongs to, warming it up from the
+     * store on a cache miss. Only events stored before the trigger are replayed, the
+     * trigger itself is left to the caller.
+     *
+     * @param trigger the event being processed
+     * @return the user state, never null
+     */
+    public UserDetectionState get(KtxEventRecord trigger) {
+        return get(trigger, NO_PARTITION);
+    }
+
+    /**
+     * Same as {@link #get(KtxEventRecord)}, remembering the partition the trigger was consumed from.
+     *
+     * @param trigger   the event being processed
+     * @param partition the auth-events partition of the trigger, or {@link #NO_PARTITION}
+     * @return the user state, never null
+     */
+    public UserDetectionState get(KtxEventRecord trigger, int partition) {
+        UserDetectionState state = getOrLoad(trigger);
+        if (partition != NO_PARTITION) {
+            state.setPartition(partition);
+        }
+        return state;
+    }
+
+    private UserDetectionState getOrLoad(KtxEventRecord trigger) {
+        String userId = trigger.userId();
+        UserDetectionState state = getIfPresent(userId);
+        if (state != null) {
+            return state;
+        }
+
+        UserDetectionState loaded = load(userId, trigger.timestamp());
+        synchronized (states) {
+            return states.computeIfAbsent(userId, id -> loaded);
+        }
+    }
+
+    /**
+     * Returns the cached state of the user without touching the store.
+     *
+     * @param userId the user id
+     * @return the state, or null if the user is not cached
+     */
+    public UserDetectionState getIfPresent(String userId) {
+        synchronized (states) {
+            return states.get(userId);
+        }
+    }
+
+    /**
+     * Applies the event to the state of its user if that state is cached.
+     * Uncached users will pick the event up from the store when warmed up.
+     *
+     * @param event the event to record
+     */
+    public void recordIfPresent(KtxEventRecord event) {
+        UserDetectionState state = getIfPresent(event.userId());
+        if (state != null) {
+            state.record(event);
+        }
+    }
+
+    public void evict(String userId) {
+        synchronized (states) {
+            states.remove(userId);
+        }
+    }
+
+    /**
+     * Evicts the states of the users consumed from the given partitions.
+     *
+     * @param partitions the auth-events partitions no longer assigned to this instance
+     * @return the number of evicted states
+     */
+    public int evictPartitions(Collection<Integer> partitions) {
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+        int evicted = 0;
+        synchronized (states) {
+            Iterator<UserDetectionState> iterator = states.values().iterator();
+            while (iterator.hasNext()) {
+                if (partitions.contains(iterator.next().getPartition())) {
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.detection.states", this, DetectionStateCache::size)
+                .description("Cached user detection states")
+                .register(registry);
+    }
+
+    private UserDetectionState load(String userId, LocalDateTime before) {
+        UserDetectionState state = new UserDetectionState(userId,
+                properties.getRecentEvents(),
+                properties.getMaxTrackedIps(),
+                properties.getMaxTrackedAlerts(),
+                securityProperties.getFailureWindowMinutes());
+
+        List<SystemEvent> history = eventStore.findByUserId(userId, properties.getWarmupLimit());
+        if (history == null) {
+            return state;
+        }
+
+        LocalDateTime bound = before != null ? before.truncatedTo(ChronoUnit.MILLIS) : null;
+        // history is ordered from the most recent to the oldest event
+        for (int i = history.size() - 1; i >= 0; i--) {
+            SystemEvent event = history.get(i);
+            if (bound == null || event.getTimestamp() == null || event.getTimestamp().isBefore(bound)) {
+                state.record(event.toRecord());
+            }
+        }
+        LOGGER.debug("Warmed up detection state for user {} from {} events", userId, history.size());
+        return state;
+    }
+}
@@ -0,0 +1,93 @@
+package ktx.kitano.security.service.application.state;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.config.DetectionProperties;
+import ktx.kitano.security.service.config.SecurityProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks authentication failures per IP address over the configured failure window.
+ * <p>
+ * Counters only live in memory: they start empty when the service starts and the least
+ * recently used addresses are evicted once {@link DetectionProperties#getMaxTrackedIpWindows()}
+ * is reached. Like {@link UserDetectionState}, failures are recorded by the security service
+ * once the rules have evaluated the event, rules only read the counters.
+ */
+@Component
+public class IpFailureTracker {
+
+    private final SecurityProperties securityProperties;
+    private final Map<String, SlidingWindowCounter> counters;
+
+    public IpFailureTracker(SecurityProperties securityProperties, DetectionProperties detectionProperties) {
+        this.securityProperties = securityProperties;
+        this.counters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SlidingWindowCounter> eldest) {
+                return size() > detectionProperties.getMaxTrackedIpWindows();
+            }
+        };
+    }
+
+    /**
+     * Records the given event if it is an authentication failure.
+     *
+     * @param event the event to record
+     */
+    public void record(KtxEventRecord event) {
+        if (event.eventType() == KtxEvent.EventType.AUTHENTICATION_FAILURE) {
+            recordFailure(event.ipAddress(), event.timestamp());
+        }
+    }
+
+    /**
+     * Counts the failures of the given address in the window ending at {@code now}, without
+     * recording anything.
+     *
+     * @param ipAddress the IP address
+     * @param now       the end of the window
+     * @return the number of failures in the window
+     */
+    public int countFailures(String ipAddress, LocalDateTime now) {
+        if (ipAddress == null) {
+            return 0;
+        }
+        SlidingWindowCounter counter;
+        synchronized (counters) {
+            counter = counters.get(ipAddress);
+        }
+        return counter != null ? counter.count(now) : 0;
+    }
+
+    /**
+     * Records a failure for the given address and returns the number of failures in the
+     * window ending at {@code timestamp}, this one included.
+     *
+     * @param ipAddress the IP address
+     * @param timestamp the time of the failure
+     * @return the number of failures in the window
+     */
+    private int recordFailure(String ipAddress, LocalDateTime timestamp) {
+        if (ipAddress == null) {
+            return 0;
+        }
+        SlidingWindowCounter counter;
+        synchronized (counters) {
+            counter = counters.computeIfAbsent(ipAddress,
+                    ip -> new SlidingWindowCounter(securityProperties.getFailureWindowMinutes()));
+        }
+        counter.add(timestamp);
+        return counter.count(timestamp);
+    }
+
+    public int size() {
+        synchronized (counters) {
+            return counters.size();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ktx.kitano.security.service.application.state;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Counts occurrences over a sliding time window using a ring of per-minute buckets.
+ * <p>
+ * Memory is fixed to one bucket per minute of the window, and both recording and counting
+ * only touch that ring, whatever the number of recorded occurrences. Occurrences older than
+ * the window are ignored.
+ */
+public class SlidingWindowCounter {
+
+    private final long[] minutes;
+    private final int[] counts;
+
+    /**
+     * @param windowMinutes the size of the window in minutes, at least one
+     */
+    public SlidingWindowCounter(int windowMinutes) {
+        int size = Math.max(1, windowMinutes);
+        this.minutes = new long[size];
+        this.counts = new int[size];
+        Arrays.fill(minutes, Long.MIN_VALUE);
+    }
+
+    /**
+     * Records one occurrence at the given time.
+     *
+     * @param timestamp the time of the occurrence
+     */
+    public synchronized void add(LocalDateTime timestamp) {
+        long minute = toEpochMinute(timestamp);
+        int index = (int) Math.floorMod(minute, (long) minutes.length);
+        if (minutes[index] != minute) {
+            if (minutes[index] > minute) {
+                // the bucket already holds a more recent minute, the occurrence is out of the window
+                return;
+            }
+            minutes[index] = minute;
+            counts[index] = 0;
+        }
+        counts[index]++;
+    }
+
+    /**
+     * Counts the occurrences in the window ending at the given time, the minute of
+     * {@code now} included.
+     *
+     * @param now the end of the window
+     * @return the number of occurrences in the window
+     */
+    public synchronized int count(LocalDateTime now) {
+        long current = toEpochMinute(now);
+        long oldest = current - minutes.length;
+        int total = 0;
+        for (int i = 0; i < minutes.length; i++) {
+            if (minutes[i] > oldest && minutes[i] <= current) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    public int getWindowMinutes() {
+        return minutes.length;
+    }
+
+    private static long toEpochMinute(LocalDateTime timestamp) {
+        LocalDateTime time = timestamp != null ? timestamp : LocalDateTime.now();
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
@@ -0,0 +1,179 @@
+package ktx.kitano.security.service.application.state;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Rolling detection state of a single user.
+ * <p>
+ * The state is updated in constant time for every event of the user, so security rules
+ * never have to reload or rescan the user's history. Alerts raised by the security service
+ * ({@code UNUSUAL_BEHAVIOR} and {@code SECURITY} events) are only tracked as unusual behaviour
+ * timestamps and do not count as user activity.
+ */
+public class UserDetectionState {
+
+    private final String userId;
+    private final KtxEvent.EventType[] recentTypes;
+    private final Set<String> ipAddresses;
+    private final int maxTrackedIps;
+    private final Deque<LocalDateTime> unusualBehaviours;
+    private final int maxTrackedAlerts;
+    private final SlidingWindowCounter failures;
+
+    private volatile int partition = DetectionStateCache.NO_PARTITION;
+
+    private int head;
+    private int recentCount;
+    private long eventCount;
+
+    public UserDetectionState(String userId, int recentEvents, int maxTrackedIps, int maxTrackedAlerts,
+                              int failureWindowMinutes) {
+        this.userId = userId;
+        this.recentTypes = new KtxEvent.EventType[Math.max(1, recentEvents)];
+        this.ipAddresses = new HashSet<>();
+        this.maxTrackedIps = maxTrackedIps;
+        this.unusualBehaviours = new ArrayDeque<>();
+        this.maxTrackedAlerts = maxTrackedAlerts;
+        this.failures = new SlidingWindowCounter(failureWindowMinutes);
+    }
+
+    /**
+     * Applies the given event to the state.
+     *
+     * @param event the event to record
+     */
+    public synchronized void record(KtxEventRecord event) {
+        KtxEvent.EventType type = event.eventType();
+        if (type == KtxEvent.EventType.UNUSUAL_BEHAVIOR) {
+            recordUnusualBehaviour(event.timestamp());
+            return;
+        }
+        if (type == KtxEvent.EventType.SECURITY) {
+            return;
+        }
+
+        head = (head + 1) % recentTypes.length;
+        recentTypes[head] = type;
+        recentCount = Math.min(recentCount + 1, recentTypes.length);
+
+        eventCount++;
+        if (type == KtxEvent.EventType.AUTHENTICATION_FAILURE) {
+            failures.add(event.timestamp());
+        }
+
+        if (event.ipAddress() != null && ipAddresses.size() < maxTrackedIps) {
+            ipAddresses.add(event.ipAddress());
+        }
+    }
+
+    private void recordUnusualBehaviour(LocalDateTime timestamp) {
+        unusualBehaviours.addLast(timestamp != null ? timestamp : LocalDateTime.now());
+        if (unusualBehaviours.size() > maxTrackedAlerts) {
+            unusualBehaviours.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the type of a recent event, {@code 0} being the most recent one.
+     *
+     * @param back how many events to go back
+     * @return the event type, or null if the state does not hold that many events
+     */
+    public synchronized KtxEvent.EventType recentType(int back) {
+        if (back < 0 || back >= recentCount) {
+            return null;
+        }
+        int index = Math.floorMod(head - back, recentTypes.length);
+        return recentTypes[index];
+    }
+
+    /**
+     * Checks whether the last {@code count} events are all of the given type.
+     *
+     * @param type  the expected event type
+     * @param count the number of recent events to check
+     * @return true if at least {@code count} events are known and all of them match
+     */
+    public synchronized boolean lastTypesAre(KtxEvent.EventType type, int count) {
+        if (count > recentCount) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (recentTypes[Math.floorMod(head - i, recentTypes.length)] != type) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the distinct IP addresses of the user, including the given one.
+     *
+     * @param ipAddress an additional IP address, may be null
+     * @return the number of distinct IP addresses
+     */
+    public synchronized int distinctIpCount(String ipAddress) {
+        int count = ipAddresses.size();
+        if (ipAddress != null && !ipAddresses.contains(ipAddress) && count < maxTrackedIps) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the authentication failures in the failure window ending at the given time.
+     *
+     * @param now the end of the window
+     * @return the number of failures in the window
+     */
+    public int countFailures(LocalDateTime now) {
+        return failures.count(now);
+    }
+
+    /**
+     * Counts the unusual behaviours recorded after the given date, dropping older ones.
+     *
+     * @param since the lower bound of the time window
+     * @return the number of unusual behaviours in the window
+     */
+    public synchronized int countUnusualBehavioursSince(LocalDateTime since) {
+        while (!unusualBehaviours.isEmpty() && !unusualBehaviours.peekFirst().isAfter(since)) {
+            unusualBehaviours.removeFirst();
+        }
+        return unusualBehaviours.size();
+    }
+
+    /**
+     * @return true if nothing has been recorded for the user yet
+     */
+    public synchronized boolean isEmpty() {
+        return eventCount == 0 && unusualBehaviours.isEmpty();
+    }
+
+    /**
+     * @return the auth-events partition the user's events were last consumed from,
+     * or {@link DetectionStateCache#NO_PARTITION}
+     */
+    public int getPartition() {
+        return partition;
+    }
+
+    public void setPartition(int partition) {
+        this.partition = partition;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+}
@@ -0,0 +1,97 @@
+package ktx.kitano.security.service.application.trace;
+
+import com.kitano.core.messaging.EventTrace;
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ktx.kitano.security.service.config.TraceProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from the creation of an event, in the auth service, to the publication
+ * of the alerts it raises on security-events, that is to Kafka acknowledging them, see
+ * {@link EventTrace}.
+ * <p>
+ * Latencies are recorded in the {@code security.alert.latency} timer, tagged by alert type,
+ * whose percentiles are computed from an HDR histogram. The most recent traced alerts are
+ * also kept in a fixed ring of {@link TraceProperties#getRecentAlerts()} entries, from which
+ * the slowest ones are reported.
+ */
+@Component
+public class AlertLatencyTracker {
+
+    private final Map<KtxEvent.EventType, Timer> timers = new EnumMap<>(KtxEvent.EventType.class);
+    private final AlertTrace[] recent;
+    private final Clock clock;
+
+    private int next;
+
+    @Autowired
+    public AlertLatencyTracker(MeterRegistry meterRegistry, TraceProperties properties) {
+        this(meterRegistry, properties, Clock.systemUTC());
+    }
+
+    public AlertLatencyTracker(MeterRegistry meterRegistry, TraceProperties properties, Clock clock) {
+        this.recent = new AlertTrace[Math.max(1, properties.getRecentAlerts())];
+        this.clock = clock;
+        for (KtxEvent.EventType type : List.of(KtxEvent.EventType.UNUSUAL_BEHAVIOR, KtxEvent.EventType.SECURITY)) {
+            timers.put(type, Timer.builder("security.alert.latency")
+                    .description("Time from the creation of an event to the publication of the alert it raised")
+                    .tag("type", type.name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records the latency of an alert being published now, to be called once Kafka
+     * acknowledged the alert.
+     *
+     * @param trace the trace of the event that raised the alert
+     * @param alert the published alert
+     * @return the recorded trace
+     */
+    public AlertTrace record(EventTrace trace, KtxEventRecord alert) {
+        // clocks of the hosts may drift apart
+        long latencyMicros = Math.max(0, trace.elapsedMicros(clock));
+        Timer timer = timers.get(alert.eventType());
+        if (timer != null) {
+            timer.record(latencyMicros, TimeUnit.MICROSECONDS);
+        }
+        AlertTrace alertTrace = new AlertTrace(trace.traceId(), alert.userId(), alert.eventType(),
+                alert.message(), trace.createdAt(), latencyMicros);
+        synchronized (recent) {
+            recent[next] = alertTrace;
+            next = (next + 1) % recent.length;
+        }
+        return alertTrace;
+    }
+
+    /**
+     * @param limit the max number of traces
+     * @return the slowest of the recent traced alerts, the slowest first
+     */
+    public List<AlertTrace> slowest(int limit) {
+        List<AlertTrace> traces = new ArrayList<>(recent.length);
+        synchronized (recent) {
+            for (AlertTrace trace : recent) {
+                if (trace != null) {
+                    traces.add(trace);
+                }
+            }
+        }
+        traces.sort(Comparator.comparingLong(AlertTrace::latencyMicros).reversed());
+        return traces.subList(0, Math.min(Math.max(0, limit), traces.size()));
+    }
+}
@@ -0,0 +1,18 @@
+package ktx.kitano.security.service.application.trace;
+
+import com.kitano.iface.model.KtxEvent;
+
+import java.time.Instant;
+
+/**
+ * Latency of an alert, from the creation of the event that raised it to its publication.
+ */
+public record AlertTrace(
+        String traceId,
+        String userId,
+        KtxEvent.EventType alertType,
+        String message,
+        Instant createdAt,
+        long latencyMicros
+) {
+}
@@ -0,0 +1,87 @@
+package ktx.kitano.security.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "security.detection")
+public class DetectionProperties {
+
+    /**
+     * Max number of historical events read from the store when a user state is warmed up.
+     */
+    private int warmupLimit = 500;
+
+    /**
+     * Number of recent event types kept per user.
+     */
+    private int recentEvents = 8;
+
+    /**
+     * Max number of distinct IP addresses tracked per user.
+     */
+    private int maxTrackedIps = 32;
+
+    /**
+     * Max number of unusual behaviour timestamps tracked per user.
+     */
+    private int maxTrackedAlerts = 64;
+
+    /**
+     * Max number of user states kept in memory before the least recently used one is evicted.
+     */
+    private int maxCachedUsers = 10_000;
+
+    /**
+     * Max number of IP addresses whose failure window is kept in memory.
+     */
+    private int maxTrackedIpWindows = 10_000;
+
+    public int getWarmupLimit() {
+        return warmupLimit;
+    }
+
+    public void setWarmupLimit(int warmupLimit) {
+        this.warmupLimit = warmupLimit;
+    }
+
+    public int getRecentEvents() {
+        return recentEvents;
+    }
+
+    public void setRecentEvents(int recentEvents) {
+        this.recentEvents = recentEvents;
+    }
+
+    public int getMaxTrackedIps() {
+        return maxTrackedIps;
+    }
+
+    public void setMaxTrackedIps(int maxTrackedIps) {
+        this.maxTrackedIps = maxTrackedIps;
+    }
+
+    public int getMaxTrackedAlerts() {
+        return maxTrackedAlerts;
+    }
+
+    public void setMaxTrackedAlerts(int maxTrackedAlerts) {
+        this.maxTrackedAlerts = maxTrackedAlerts;
+    }
+
+    public int getMaxCachedUsers() {
+        return maxCachedUsers;
+    }
+
+    public void setMaxCachedUsers(int maxCachedUsers) {
+        this.maxCachedUsers = maxCachedUsers;
+    }
+
+    public int getMaxTrackedIpWindows() {
+        return maxTrackedIpWindows;
+    }
+
+    public void setMaxTrackedIpWindows(int maxTrackedIpWindows) {
+        this.maxTrackedIpWindows = maxTrackedIpWindows;
+    }
+}
@@ -0,0 +1,35 @@
+package ktx.kitano.security.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "security.query")
+public class EventQueryProperties {
+
+    /**
+     * Time range in days covered by event queries that do not specify one.
+     */
+    private int lookbackDays = 30;
+
+    /**
+     * Max number of events returned by a query.
+     */
+    private int maxResults = 1_000;
+
+    public int getLookbackDays() {
+        return lookbackDays;
+    }
+
+    public void setLookbackDays(int lookbackDays) {
+        this.lookbackDays = lookbackDays;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+}
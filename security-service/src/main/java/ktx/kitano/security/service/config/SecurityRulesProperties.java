@@ -0,0 +1,42 @@
+package ktx.kitano.security.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Component
+@ConfigurationProperties(prefix = "security.rules")
+public class SecurityRulesProperties {
+
+    /**
+     * Names of the rules that must not be evaluated.
+     */
+    private Set<String> disabled = new HashSet<>();
+
+    /**
+     * Number of consecutive successful logins after which a failure is reported as unusual.
+     */
+    private int successStreak = 3;
+
+    public Set<String> getDisabled() {
+        return disabled;
+    }
+
+    public void setDisabled(Set<String> disabled) {
+        this.disabled = disabled;
+    }
+
+    public boolean isEnabled(String rule) {
+        return !disabled.contains(rule);
+    }
+
+    public int getSuccessStreak() {
+        return successStreak;
+    }
+
+    public void setSuccessStreak(int successStreak) {
+        this.successStreak = successStreak;
+    }
+}
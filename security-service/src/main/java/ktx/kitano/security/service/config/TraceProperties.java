@@ -0,0 +1,35 @@
+package ktx.kitano.security.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "security.trace")
+public class TraceProperties {
+
+    /**
+     * Number of recent traced alerts kept in memory, among which the slowest are reported.
+     */
+    private int recentAlerts = 256;
+
+    /**
+     * Default number of traces returned by the slowest traces endpoint.
+     */
+    private int defaultLimit = 20;
+
+    public int getRecentAlerts() {
+        return recentAlerts;
+    }
+
+    public void setRecentAlerts(int recentAlerts) {
+        this.recentAlerts = recentAlerts;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+}
@@ -0,0 +1,103 @@
+package ktx.kitano.security.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "security.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Whether events are queued and written by batch in the background. When disabled,
+     * events are written synchronously by the calling thread.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Max number of events waiting to be written.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Max number of events written in one batch.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Max time in milliseconds a queued event waits for its batch to fill up.
+     */
+    private long maxLatencyMillis = 50;
+
+    /**
+     * Max time in milliseconds a caller is blocked when the queue is full before the
+     * event is rejected.
+     */
+    private long offerTimeoutMillis = 1_000;
+
+    /**
+     * Max time in milliseconds given to the writer to flush the queue on shutdown.
+     */
+    private long shutdownTimeoutMillis = 10_000;
+
+    /**
+     * Whether {@code POST /api/events/log} answers 201 once the event is written, or 202 as
+     * soon as it is queued.
+     */
+    private boolean acknowledgeAfterWrite = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public void setMaxLatencyMillis(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    public long getOfferTimeoutMillis() {
+        return offerTimeoutMillis;
+    }
+
+    public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    public boolean isAcknowledgeAfterWrite() {
+        return acknowledgeAfterWrite;
+    }
+
+    public void setAcknowledgeAfterWrite(boolean acknowledgeAfterWrite) {
+        this.acknowledgeAfterWrite = acknowledgeAfterWrite;
+    }
+}
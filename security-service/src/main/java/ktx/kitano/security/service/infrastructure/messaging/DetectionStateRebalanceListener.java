@@ -0,0 +1,52 @@
+package ktx.kitano.security.service.infrastructure.messaging;
+
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Drops the detection states of the auth-events partitions taken away from this instance.
+ * <p>
+ * With the cooperative sticky assignor only the partitions that actually move are revoked,
+ * so the states of the partitions kept across a rebalance stay warm.
+ */
+@Component
+public class DetectionStateRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DetectionStateRebalanceListener.class);
+    private static final String TOPIC = "auth-events";
+
+    private final DetectionStateCache stateCache;
+
+    public DetectionStateRebalanceListener(DetectionStateCache stateCache) {
+        this.stateCache = stateCache;
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        evict(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        evict(partitions);
+    }
+
+    private void evict(Collection<TopicPartition> partitions) {
+        List<Integer> revoked = partitions.stream()
+                .filter(partition -> TOPIC.equals(partition.topic()))
+                .map(TopicPartition::partition)
+                .toList();
+        int evicted = stateCache.evictPartitions(revoked);
+        if (evicted > 0) {
+            LOGGER.info("Evicted {} detection states of revoked partitions {}", evicted, revoked);
+        }
+    }
+}
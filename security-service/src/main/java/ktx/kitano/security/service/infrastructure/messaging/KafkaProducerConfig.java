@@ -1,6 +1,8 @@
 package ktx.kitano.security.service.infrastructure.messaging;
 
-import com.kitano.core.model.SystemEvent;
+import com.kitano.iface.messaging.KtxEventSerializer;
+import com.kitano.iface.messaging.WireFormat;
+import com.kitano.iface.model.KtxEventRecord;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,9 +11,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 @Configuration
@@ -20,22 +22,29 @@ public class KafkaProducerConfig {
     @Value(value = "${kafka.bootstrapAddress:kafka:9092}")
     private String bootstrapAddress;
 
+    /**
+     * json or binary, see {@link com.kitano.iface.messaging.KtxEventCodec}. Consumers read both,
+     * switch producers to binary once every consumer is upgraded.
+     */
+    @Value(value = "${kafka.serde.format:json}")
+    private String serdeFormat;
+
     @Bean
-    public ProducerFactory<String, SystemEvent> senderFactory() {
+    public ProducerFactory<String, KtxEventRecord> senderFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KtxEventSerializer.class);
 
-        // Disable type headers to prevent serialization issues
-        JsonSerializer<SystemEvent> jsonSerializer = new JsonSerializer<>();
-        jsonSerializer.setAddTypeInfo(false);
+        // No type headers, the consumers only expect events
+        KtxEventSerializer eventSerializer = new KtxEventSerializer(
+                WireFormat.valueOf(serdeFormat.trim().toUpperCase(Locale.ROOT)));
 
-        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), jsonSerializer);
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), eventSerializer);
     }
 
     @Bean
-    public KafkaTemplate<String, SystemEvent> kafkaTemplate() {
+    public KafkaTemplate<String, KtxEventRecord> kafkaTemplate() {
         return new KafkaTemplate<>(senderFactory());
     }
 }
\ No newline at end of file
@@ -1,13 +1,32 @@
 package ktx.kitano.security.service.infrastructure.messaging;
 
-import com.kitano.core.model.SystemEvent;
+import com.kitano.core.messaging.EventTrace;
+import com.kitano.iface.model.KtxEventRecord;
 import ktx.kitano.security.service.application.SecurityService;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes auth-events by batch: the records returned by a poll are secured in one go per
+ * partition, see {@code spring.kafka.listener.type} and {@code spring.kafka.consumer.max-poll-records}.
+ * Records are keyed by user id, so all the events of a user come from the same partition.
+ * Events are decoded straight into immutable {@link KtxEventRecord}s, no entity is built
+ * for events that are only evaluated. The {@link EventTrace} of each record is read from its
+ * headers and handed over to the alerts it raises.
+ */
 @Component
 public class SecurityEventConsumer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityEventConsumer.class);
+
     private final SecurityService service;
 
     public SecurityEventConsumer(SecurityService service) {
@@ -15,8 +34,20 @@ public class SecurityEventConsumer {
     }
 
     @KafkaListener(topics = "auth-events", groupId = "security-service")
-    public void consume(ConsumerRecord<String, SystemEvent> systemEventConsumerRecord) {
-        SystemEvent event = systemEventConsumerRecord.value();
-        service.secure(event);
+    public void consume(List<ConsumerRecord<String, KtxEventRecord>> systemEventConsumerRecords) {
+        Map<Integer, List<KtxEventRecord>> eventsByPartition = new LinkedHashMap<>();
+        Map<Integer, List<EventTrace>> tracesByPartition = new LinkedHashMap<>();
+        for (ConsumerRecord<String, KtxEventRecord> consumerRecord : systemEventConsumerRecords) {
+            if (consumerRecord.value() != null) {
+                eventsByPartition.computeIfAbsent(consumerRecord.partition(), partition -> new ArrayList<>())
+                        .add(consumerRecord.value());
+                tracesByPartition.computeIfAbsent(consumerRecord.partition(), partition -> new ArrayList<>())
+                        .add(EventTrace.readFrom(consumerRecord.headers()));
+            }
+        }
+        for (Map.Entry<Integer, List<KtxEventRecord>> entry : eventsByPartition.entrySet()) {
+            LOGGER.debug("Securing {} events of partition {}", entry.getValue().size(), entry.getKey());
+            service.secureAll(entry.getValue(), tracesByPartition.get(entry.getKey()), entry.getKey());
+        }
     }
-}
\ No newline at end of file
+}
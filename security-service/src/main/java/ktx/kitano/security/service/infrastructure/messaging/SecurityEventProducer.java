@@ -1,37 +1,79 @@
 package ktx.kitano.security.service.infrastructure.messaging;
 
-import com.kitano.core.model.SystemEvent;
+import com.kitano.core.messaging.EventKeys;
+import com.kitano.core.messaging.EventTrace;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.support.SendResult;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class SecurityEventProducer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SecurityEventProducer.class);
+    private static final String TOPIC = "security-events";
 
-    private final KafkaOperations<String, SystemEvent> kafka;
+    private final KafkaOperations<String, KtxEventRecord> kafka;
+    private final boolean keyFallbackToIp;
+    private final Timer sent;
+    private final Timer failed;
 
-    public SecurityEventProducer(KafkaOperations<String, SystemEvent> kafka) {
+    @Autowired
+    public SecurityEventProducer(KafkaOperations<String, KtxEventRecord> kafka,
+                                 @Value("${kafka.key.fallback-to-ip:true}") boolean keyFallbackToIp,
+                                 MeterRegistry meterRegistry) {
         this.kafka = kafka;
+        this.keyFallbackToIp = keyFallbackToIp;
+        this.sent = sendTimer(meterRegistry, "success");
+        this.failed = sendTimer(meterRegistry, "failure");
     }
 
-    public boolean sendEvent(SystemEvent event) {
-        Message<SystemEvent> message = MessageBuilder
-                .withPayload(event)
-                .setHeader("kafka_topic", "security-events")
-                .build();
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("events.send")
+                .description("Time from handing an event to Kafka to its acknowledgement")
+                .tag("topic", TOPIC)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the event to security-events, keyed by user id, see {@link EventKeys}.
+     *
+     * @param event the event to send
+     * @return the send, completed once Kafka acknowledged the event; failures are logged and timed
+     */
+    public CompletableFuture<SendResult<String, KtxEventRecord>> sendEvent(KtxEventRecord event) {
+        return sendEvent(event, null);
+    }
 
-        CompletableFuture<SendResult<String, SystemEvent>> future = kafka.send(message);
+    /**
+     * Same as {@link #sendEvent(KtxEventRecord)}, carrying the given trace in the record headers.
+     *
+     * @param event the event to send
+     * @param trace the trace of the event, may be null
+     * @return the send, completed once Kafka acknowledged the event; failures are logged and timed
+     */
+    public CompletableFuture<SendResult<String, KtxEventRecord>> sendEvent(KtxEventRecord event, EventTrace trace) {
+        long start = System.nanoTime();
+        ProducerRecord<String, KtxEventRecord> record =
+                new ProducerRecord<>(TOPIC, EventKeys.keyOf(event, keyFallbackToIp), event);
+        if (trace != null) {
+            trace.writeTo(record.headers());
+        }
 
-        future.whenComplete((result, ex) -> {
+        return kafka.send(record).whenComplete((result, ex) -> {
+            (ex == null ? sent : failed).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             if (ex == null) {
                 RecordMetadata meta = result.getRecordMetadata();
                 LOGGER.info("Event sent to topic {} partition {} offset {}",
@@ -40,6 +82,5 @@ public class SecurityEventProducer {
                 LOGGER.error("Failed to send event: {}", ex.getMessage(), ex);
             }
         });
-        return true;
     }
 }
\ No newline at end of file
@@ -2,17 +2,54 @@ package ktx.kitano.security.service.infrastructure.repository;
 
 import com.kitano.core.model.SystemEvent;
 import com.kitano.iface.model.KtxEvent;
-import org.springframework.data.domain.Sort;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
+/**
+ * Every query is bounded by a time range and a page size, and is backed by one of the
+ * {@code system_events} indexes: {@code (user_id, timestamp)}, {@code (event_type, timestamp)}
+ * and {@code (timestamp)}. Pages must be sorted by timestamp only.
+ * <p>
+ * Keyset pages and streams are ordered by {@code (timestamp, id)}: InnoDB secondary indexes
+ * end with the primary key, so {@code (timestamp)} also serves that order.
+ */
 @Repository
-public interface SecurityEventJpaRepository extends JpaRepository<SystemEvent, String> {
-    List<SystemEvent> findByEventType(KtxEvent.EventType eventType);
+public interface SecurityEventJpaRepository extends JpaRepository<SystemEvent, UUID> {
 
-    List<SystemEvent> findByUserId(String userId);
+    List<SystemEvent> findByEventTypeAndTimestampBetween(KtxEvent.EventType eventType, LocalDateTime from,
+                                                         LocalDateTime to, Pageable pageable);
 
-    List<SystemEvent> findAll(Sort sort);
-}
\ No newline at end of file
+    List<SystemEvent> findByUserIdAndTimestampBetween(String userId, LocalDateTime from, LocalDateTime to,
+                                                      Pageable pageable);
+
+    List<SystemEvent> findByUserId(String userId, Pageable pageable);
+
+    List<SystemEvent> findByTimestampBetween(LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT e FROM SystemEvent e ORDER BY e.timestamp DESC, e.id DESC")
+    List<SystemEvent> findFirstPage(Pageable pageable);
+
+    @Query("SELECT e FROM SystemEvent e WHERE e.timestamp < :timestamp OR (e.timestamp = :timestamp AND e.id < :id) "
+            + "ORDER BY e.timestamp DESC, e.id DESC")
+    List<SystemEvent> findPageBefore(@Param("timestamp") LocalDateTime timestamp, @Param("id") UUID id,
+                                     Pageable pageable);
+
+    /**
+     * Streams the events row by row: with MySQL Connector/J, a fetch size of
+     * {@link Integer#MIN_VALUE} reads the result set as it comes instead of loading it in memory.
+     * Must be called in a read-only transaction and the stream closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<SystemEvent> streamByTimestampBetweenOrderByTimestampDescIdDesc(LocalDateTime from, LocalDateTime to);
+}
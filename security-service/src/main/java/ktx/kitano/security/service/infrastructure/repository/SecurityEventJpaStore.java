@@ -5,12 +5,21 @@ import com.kitano.core.model.SystemException;
 import com.kitano.iface.model.KtxEvent;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import ktx.kitano.security.service.config.EventQueryProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public class SecurityEventJpaStore implements SecurityEventStore<SystemEvent> {
@@ -18,12 +27,14 @@ public class SecurityEventJpaStore implements SecurityEventStore<SystemEvent> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SecurityEventJpaStore.class);
 
     private final SecurityEventJpaRepository jpaRepository;
+    private final EventQueryProperties properties;
 
     @PersistenceContext
     private EntityManager entityManager;
 
-    public SecurityEventJpaStore(SecurityEventJpaRepository jpaRepository) {
+    public SecurityEventJpaStore(SecurityEventJpaRepository jpaRepository, EventQueryProperties properties) {
         this.jpaRepository = jpaRepository;
+        this.properties = properties;
     }
 
     @Override
@@ -36,32 +47,71 @@ public class SecurityEventJpaStore implements SecurityEventStore<SystemEvent> {
         return savedEvent;
     }
 
+    @Override
+    public List<SystemEvent> saveAll(List<SystemEvent> events) throws Exception {
+        if (events == null) {
+            throw new SystemException("Events cannot be null");
+        }
+        if (events.isEmpty()) {
+            return events;
+        }
+        List<SystemEvent> savedEvents = jpaRepository.saveAll(events);
+        LOGGER.info("{} events saved", savedEvents.size());
+        return savedEvents;
+    }
 
     @Override
     public List<SystemEvent> findByType(KtxEvent.EventType eventType) {
-        List<SystemEvent> events = jpaRepository.findByEventType(eventType);
+        LocalDateTime now = LocalDateTime.now();
+        return findByType(eventType, lookbackStart(now), now, properties.getMaxResults());
+    }
+
+    @Override
+    public List<SystemEvent> findByType(KtxEvent.EventType eventType, LocalDateTime from, LocalDateTime to, int limit) {
+        List<SystemEvent> events = jpaRepository.findByEventTypeAndTimestampBetween(eventType, from, to,
+                page(Sort.Direction.DESC, limit));
         LOGGER.trace("Found {} events", events.size());
         return events;
     }
 
     @Override
     public List<SystemEvent> findAllByOrder(Sort.Direction direction) {
-        List<SystemEvent> events = jpaRepository.findAll(Sort.by(direction, "timestamp"));
+        LocalDateTime now = LocalDateTime.now();
+        return findAllByOrder(direction, lookbackStart(now), now, properties.getMaxResults());
+    }
+
+    @Override
+    public List<SystemEvent> findAllByOrder(Sort.Direction direction, LocalDateTime from, LocalDateTime to, int limit) {
+        List<SystemEvent> events = jpaRepository.findByTimestampBetween(from, to, page(direction, limit));
         LOGGER.trace("Found {} events", events.size());
         return events;
     }
 
     @Override
     public SystemEvent findById(String id) {
-        SystemEvent event = jpaRepository.findById(id).orElse(null);
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            LOGGER.trace("Invalid event id: {}", id);
+            return null;
+        }
+        SystemEvent event = jpaRepository.findById(uuid).orElse(null);
         LOGGER.trace("Found event: {}", event);
         return event;
     }
 
     @Override
     public List<SystemEvent> findByUserId(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return findByUserId(userId, lookbackStart(now), now, properties.getMaxResults());
+    }
+
+    @Override
+    public List<SystemEvent> findByUserId(String userId, LocalDateTime from, LocalDateTime to, int limit) {
         LOGGER.trace("Finding events for user: {}", userId);
-        List<SystemEvent> events = jpaRepository.findByUserId(userId);
+        List<SystemEvent> events = jpaRepository.findByUserIdAndTimestampBetween(userId, from, to,
+                page(Sort.Direction.DESC, limit));
         LOGGER.trace("Found {} events for user: {}", events.size(), userId);
         return events;
     }
@@ -69,13 +119,45 @@ public class SecurityEventJpaStore implements SecurityEventStore<SystemEvent> {
     @Override
     public List<SystemEvent> findByUserId(String userId, int limit) {
         LOGGER.trace("Finding {} events for user: {}", limit, userId);
-        List<SystemEvent> events = entityManager.createQuery("SELECT e FROM SystemEvent e WHERE e.userId = :userId ORDER BY timestamp DESC", SystemEvent.class)
-                .setParameter("userId", userId)
-                .setMaxResults(limit)
-                .getResultList();
+        List<SystemEvent> events = jpaRepository.findByUserId(userId, page(Sort.Direction.DESC, limit));
         LOGGER.trace("Found {} events for user: {}", events.size(), userId);
         return events;
     }
 
+    @Override
+    public List<SystemEvent> findPage(LocalDateTime beforeTimestamp, UUID beforeId, int limit) {
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, properties.getMaxResults())));
+        List<SystemEvent> events = beforeTimestamp == null
+                ? jpaRepository.findFirstPage(page)
+                : jpaRepository.findPageBefore(beforeTimestamp, beforeId, page);
+        LOGGER.trace("Found {} events", events.size());
+        return events;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamAll(LocalDateTime from, LocalDateTime to, Consumer<? super SystemEvent> consumer) {
+        long count = 0;
+        try (Stream<SystemEvent> events = jpaRepository.streamByTimestampBetweenOrderByTimestampDescIdDesc(from, to)) {
+            Iterator<SystemEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                SystemEvent event = iterator.next();
+                consumer.accept(event);
+                // keep the persistence context empty, whatever the number of rows
+                entityManager.detach(event);
+                count++;
+            }
+        }
+        LOGGER.trace("Streamed {} events", count);
+        return count;
+    }
 
-}
\ No newline at end of file
+    private LocalDateTime lookbackStart(LocalDateTime now) {
+        return now.minusDays(properties.getLookbackDays());
+    }
+
+    private Pageable page(Sort.Direction direction, int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, properties.getMaxResults())),
+                Sort.by(direction, "timestamp"));
+    }
+}
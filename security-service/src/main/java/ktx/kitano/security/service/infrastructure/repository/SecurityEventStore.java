@@ -2,13 +2,50 @@ package ktx.kitano.security.service.infrastructure.repository;
 
 import com.kitano.iface.KtxEventService;
 import com.kitano.iface.model.KtxEvent;
+import org.springframework.data.domain.Sort;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * Event store. Queries without a time range cover the configured lookback period, and all
+ * queries return a bounded number of events, the most recent first unless stated otherwise.
+ */
 public interface SecurityEventStore<T extends KtxEvent<?>> extends KtxEventService<T> {
     List<T> findByType(KtxEvent.EventType eventType);
 
+    List<T> findByType(KtxEvent.EventType eventType, LocalDateTime from, LocalDateTime to, int limit);
+
     List<T> findByUserId(String userId);
 
     List<T> findByUserId(String userId, int limit);
-}
\ No newline at end of file
+
+    List<T> findByUserId(String userId, LocalDateTime from, LocalDateTime to, int limit);
+
+    List<T> findAllByOrder(Sort.Direction direction, LocalDateTime from, LocalDateTime to, int limit);
+
+    /**
+     * Returns a page of events ordered by {@code (timestamp, id)}, the most recent first.
+     *
+     * @param beforeTimestamp the timestamp of the last event of the previous page, null for the first page
+     * @param beforeId        the id of the last event of the previous page
+     * @param limit           the max number of events
+     * @return the events
+     */
+    List<T> findPage(LocalDateTime beforeTimestamp, UUID beforeId, int limit);
+
+    /**
+     * Streams the events of the given time range to the consumer, the most recent first,
+     * without loading them all in memory.
+     *
+     * @param from     the lower bound of the time range
+     * @param to       the upper bound of the time range
+     * @param consumer the consumer of the events
+     * @return the number of streamed events
+     */
+    long streamAll(LocalDateTime from, LocalDateTime to, Consumer<? super T> consumer);
+
+    List<T> saveAll(List<T> events) throws Exception;
+}
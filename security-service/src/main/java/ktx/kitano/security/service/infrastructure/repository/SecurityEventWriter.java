@@ -0,0 +1,156 @@
+package ktx.kitano.security.service.infrastructure.repository;
+
+import com.kitano.core.concurrent.BatchingQueue;
+import com.kitano.core.model.SystemEvent;
+import com.kitano.core.model.SystemException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ktx.kitano.security.service.config.WriteBehindProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind writer of {@link SystemEvent}.
+ * <p>
+ * Events are queued in a {@link BatchingQueue}, drained by a single background thread which
+ * writes them with {@link SecurityEventStore#saveAll(List)} by batches of at most
+ * {@link WriteBehindProperties#getBatchSize()} events. A batch is written as soon as it is
+ * full or once its first event waited {@link WriteBehindProperties#getMaxLatencyMillis()}.
+ * When the queue is full, callers are blocked up to
+ * {@link WriteBehindProperties#getOfferTimeoutMillis()} before their event is rejected.
+ * The queue is flushed on shutdown.
+ * <p>
+ * Every write returns a future completed with the saved event once it is durable, or
+ * completed exceptionally if the event was rejected or its batch failed.
+ */
+@Component
+public class SecurityEventWriter implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityEventWriter.class);
+
+    private final SecurityEventStore<SystemEvent> eventStore;
+    private final WriteBehindProperties properties;
+    private final BatchingQueue<PendingWrite> queue;
+
+    public SecurityEventWriter(SecurityEventStore<SystemEvent> eventStore, WriteBehindProperties properties) {
+        this.eventStore = eventStore;
+        this.properties = properties;
+        this.queue = new BatchingQueue<>("security-event-writer", properties.getQueueCapacity(),
+                properties.getBatchSize(), properties.getMaxLatencyMillis(), this::flush);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            queue.start();
+        }
+    }
+
+    /**
+     * Stops accepting events and waits for the queued ones to be written.
+     */
+    @PreDestroy
+    public void stop() {
+        queue.stop(properties.getShutdownTimeoutMillis());
+    }
+
+    /**
+     * Queues the given event.
+     *
+     * @param event the event to write
+     * @return a future completed with the saved event
+     */
+    public CompletableFuture<SystemEvent> write(SystemEvent event) {
+        if (!properties.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(eventStore.save(event));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (event == null) {
+            return CompletableFuture.failedFuture(new SystemException("Event cannot be null"));
+        }
+        if (!queue.isRunning()) {
+            return CompletableFuture.failedFuture(new SystemException("Event writer is stopped"));
+        }
+
+        PendingWrite pendingWrite = new PendingWrite(event, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pendingWrite, properties.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Event write queue is full, rejecting event: {}", event);
+                return CompletableFuture.failedFuture(new SystemException("Event write queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new SystemException("Interrupted while queueing event"));
+        }
+        return pendingWrite.future();
+    }
+
+    /**
+     * Queues the given events.
+     *
+     * @param events the events to write
+     * @return a future completed with the saved events, in order, once all of them are written
+     */
+    public CompletableFuture<List<SystemEvent>> writeAll(List<SystemEvent> events) {
+        if (!properties.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(eventStore.saveAll(events));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        List<CompletableFuture<SystemEvent>> futures = new ArrayList<>(events.size());
+        for (SystemEvent event : events) {
+            futures.add(write(event));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * @return the number of events waiting to be written
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.events.pending", this, SecurityEventWriter::pending)
+                .description("Events waiting to be written")
+                .register(registry);
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<SystemEvent> events = new ArrayList<>(batch.size());
+        for (PendingWrite pendingWrite : batch) {
+            events.add(pendingWrite.event());
+        }
+        try {
+            List<SystemEvent> savedEvents = eventStore.saveAll(events);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(savedEvents.get(i));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to write {} events: {}", batch.size(), e.getMessage());
+            for (PendingWrite pendingWrite : batch) {
+                pendingWrite.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record PendingWrite(SystemEvent event, CompletableFuture<SystemEvent> future) {
+    }
+}
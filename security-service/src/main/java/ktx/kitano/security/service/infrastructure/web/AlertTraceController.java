@@ -0,0 +1,40 @@
+package ktx.kitano.security.service.infrastructure.web;
+
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
+import ktx.kitano.security.service.application.trace.AlertTrace;
+import ktx.kitano.security.service.config.TraceProperties;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller exposing the latency of the recently raised alerts, for debugging.
+ */
+@RestController
+@RequestMapping("/api/traces")
+public class AlertTraceController {
+
+    private final AlertLatencyTracker latencyTracker;
+    private final TraceProperties properties;
+
+    public AlertTraceController(AlertLatencyTracker latencyTracker, TraceProperties properties) {
+        this.latencyTracker = latencyTracker;
+        this.properties = properties;
+    }
+
+    /**
+     * Retrieves the slowest of the recent traced alerts, from the creation of the event that
+     * raised them to their publication.
+     *
+     * @param limit The max number of traces, {@link TraceProperties#getDefaultLimit()} if not set.
+     * @return List of alert traces, the slowest first.
+     */
+    @GetMapping("/slowest")
+    public ResponseEntity<List<AlertTrace>> getSlowest(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(latencyTracker.slowest(limit != null ? limit : properties.getDefaultLimit()));
+    }
+}
@@ -1,15 +1,28 @@
 package ktx.kitano.security.service.infrastructure.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.core.model.SystemException;
+import ktx.kitano.security.service.application.EventCursor;
 import ktx.kitano.security.service.application.SecurityService;
+import ktx.kitano.security.service.config.EventQueryProperties;
+import ktx.kitano.security.service.config.WriteBehindProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for managing System Events.
@@ -19,45 +32,115 @@ import java.util.List;
 public class SecurityEventController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SecurityEventController.class);
-    private final SecurityService eventService;
+    /**
+     * Response header holding the cursor of the next page of events.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    public SecurityEventController(SecurityService eventService) {
+    private final SecurityService eventService;
+    private final WriteBehindProperties writeBehindProperties;
+    private final EventQueryProperties queryProperties;
+    private final ObjectWriter ndjsonWriter;
+
+    public SecurityEventController(SecurityService eventService,
+                                   WriteBehindProperties writeBehindProperties,
+                                   EventQueryProperties queryProperties,
+                                   ObjectMapper objectMapper) {
         this.eventService = eventService;
+        this.writeBehindProperties = writeBehindProperties;
+        this.queryProperties = queryProperties;
+        // rows are written one after the other to the response, which is flushed by the container
+        this.ndjsonWriter = objectMapper.writerFor(SystemEvent.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
     }
 
     /**
-     * Logs a new security event.
+     * Logs a new security event. The servlet thread is released while the event is written.
      *
-     * @param event The security event to log.
-     * @return The logged event with HTTP 201 Created.
+     * @param event     The security event to log.
+     * @param traceId   The trace id of the event, if traced, see {@link EventTrace}.
+     * @param createdAt The creation time of the traced event, in microseconds since the epoch.
+     * @return The logged event with HTTP 201 Created once written, or the queued event with
+     * HTTP 202 Accepted if {@link WriteBehindProperties#isAcknowledgeAfterWrite()} is disabled.
      */
     @PostMapping("/log")
-    public ResponseEntity<SystemEvent> logEvent(@RequestBody SystemEvent event) {
+    public CompletableFuture<ResponseEntity<SystemEvent>> logEvent(
+            @RequestBody SystemEvent event,
+            @RequestHeader(name = EventTrace.TRACE_ID_HEADER, required = false) String traceId,
+            @RequestHeader(name = EventTrace.CREATED_AT_HEADER, required = false) Long createdAt) {
         LOGGER.info("Received request to log event: {}", event);
-        SystemEvent savedEvent = eventService.logEvent(event);
-        if (savedEvent == null) {
-            LOGGER.error("Failed to log event: {}", event);
-            return ResponseEntity.internalServerError().build();
+        if (traceId != null && createdAt != null) {
+            event.setTrace(new EventTrace(traceId, createdAt));
+        }
+        CompletableFuture<SystemEvent> savedEvent = eventService.logEvent(event);
+        if (!writeBehindProperties.isAcknowledgeAfterWrite() && !savedEvent.isCompletedExceptionally()) {
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().body(event));
         }
-        return ResponseEntity.status(201).body(savedEvent);
+        return savedEvent.handle((saved, e) -> {
+            if (e != null) {
+                LOGGER.error("Failed to log event: {}", event, e);
+                return ResponseEntity.internalServerError().build();
+            }
+            return ResponseEntity.status(201).body(saved);
+        });
     }
 
     /**
-     * Retrieves all security events.
+     * Retrieves a page of security events, the most recent first.
+     * <p>
+     * The cursor of the next page is returned in the {@value #NEXT_CURSOR_HEADER} header and
+     * is passed back as {@code after} to read the following page, until HTTP 204 No Content.
      *
+     * @param limit The max number of events of the page.
+     * @param after The cursor returned with the previous page, if any.
      * @return List of security events.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<SystemEvent>> getAllEvents() {
-        LOGGER.info("Received request to get all events");
+    public ResponseEntity<List<SystemEvent>> getAllEvents(@RequestParam(defaultValue = "100") int limit,
+                                                          @RequestParam(required = false) String after) {
+        LOGGER.info("Received request to get {} events after {}", limit, after);
 
-        List<SystemEvent> events = eventService.findAllByOrder(Sort.Direction.DESC);
+        EventCursor cursor = after != null ? EventCursor.decode(after) : null;
+        List<SystemEvent> events = eventService.findPage(cursor, limit);
 
         if (events.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
 
-        return ResponseEntity.ok(events);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, EventCursor.of(events.get(events.size() - 1)).encode())
+                .body(events);
+    }
+
+    /**
+     * Streams the security events of a time range as newline delimited JSON, the most recent
+     * first. Events are written as they are read from the database.
+     *
+     * @param from The lower bound of the time range, the configured lookback period by default.
+     * @param to   The upper bound of the time range, now by default.
+     * @return The events, one JSON document per line.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(queryProperties.getLookbackDays());
+        LOGGER.info("Received request to stream events from {} to {}", start, end);
+
+        StreamingResponseBody body = outputStream -> {
+            long count = eventService.streamAll(start, end, event -> {
+                try {
+                    ndjsonWriter.writeValue(outputStream, event);
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            LOGGER.info("Streamed {} events", count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
@@ -88,6 +171,18 @@ public class SecurityEventController {
         return ResponseEntity.ok(events);
     }
 
+    /**
+     * Handles malformed request parameters, such as invalid cursors.
+     *
+     * @param e The exception.
+     * @return HTTP 400 Bad Request response.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
+        LOGGER.warn("Handled IllegalArgumentException: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
     /**
      * Handles SecuritySystemException globally.
      *
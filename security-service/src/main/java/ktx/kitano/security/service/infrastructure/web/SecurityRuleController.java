@@ -0,0 +1,34 @@
+package ktx.kitano.security.service.infrastructure.web;
+
+import ktx.kitano.security.service.application.rule.RuleStatistics;
+import ktx.kitano.security.service.application.rule.SecurityRuleEngine;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller exposing the security rules and their evaluation statistics.
+ */
+@RestController
+@RequestMapping("/api/rules")
+public class SecurityRuleController {
+
+    private final SecurityRuleEngine ruleEngine;
+
+    public SecurityRuleController(SecurityRuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+    }
+
+    /**
+     * Retrieves every known rule with its state and evaluation time.
+     *
+     * @return List of rule statistics.
+     */
+    @GetMapping
+    public ResponseEntity<List<RuleStatistics>> getRules() {
+        return ResponseEntity.ok(ruleEngine.statistics());
+    }
+}
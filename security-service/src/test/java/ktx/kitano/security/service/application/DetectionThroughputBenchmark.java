@@ -0,0 +1,178 @@
+package ktx.kitano.security.service.application;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.kitano.core.messaging.EventTrace;
+import com.kitano.core.model.SystemEvent;
+import com.kitano.core.model.UuidV7;
+import com.kitano.iface.messaging.KtxEventDeserializer;
+import com.kitano.iface.messaging.KtxEventSerializer;
+import com.kitano.iface.messaging.WireFormat;
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ktx.kitano.security.service.application.rule.IpFailureThresholdRule;
+import ktx.kitano.security.service.application.rule.RepeatedUnusualBehaviourRule;
+import ktx.kitano.security.service.application.rule.SecurityRuleEngine;
+import ktx.kitano.security.service.application.rule.SuccessAfterFailureRule;
+import ktx.kitano.security.service.application.rule.UnusualIpActivityRule;
+import ktx.kitano.security.service.application.rule.UnusualLoginPatternRule;
+import ktx.kitano.security.service.application.rule.UserFailureThresholdRule;
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
+import ktx.kitano.security.service.config.DetectionProperties;
+import ktx.kitano.security.service.config.SecurityProperties;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import ktx.kitano.security.service.config.TraceProperties;
+import ktx.kitano.security.service.config.UnusualBehaviourProperties;
+import ktx.kitano.security.service.config.WriteBehindProperties;
+import ktx.kitano.security.service.infrastructure.messaging.SecurityEventProducer;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Throughput of the auth-events consumer: a poll of {@value #BATCH_SIZE} binary records is
+ * decoded and secured by {@link SecurityService#secureAll(List, int)} with every rule enabled,
+ * the tripped alerts being mapped to entities and handed to an in-memory store. Run with
+ * {@code mvn test -pl security-service -am -Dbenchmark=true -Dtest=DetectionThroughputBenchmark
+ * -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionThroughputBenchmark {
+
+    private static final String TOPIC = "auth-events";
+    private static final int BATCH_SIZE = 500;
+    private static final int USERS = 50;
+
+    private static final KtxEvent.EventType[] PATTERN = {
+            KtxEvent.EventType.AUTHENTICATION_SUCCESS,
+            KtxEvent.EventType.USER_ACTION,
+            KtxEvent.EventType.USER_ACTION,
+            KtxEvent.EventType.AUTHENTICATION_FAILURE,
+            KtxEvent.EventType.AUTHENTICATION_SUCCESS
+    };
+
+    private KtxEventDeserializer deserializer;
+    private SecurityService service;
+    private List<byte[]> poll;
+    private List<KtxEventRecord> decoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        // rules log every alert
+        ((Logger) LoggerFactory.getLogger("ktx.kitano.security.service")).setLevel(Level.ERROR);
+
+        SecurityEventStore<SystemEvent> store = mock(SecurityEventStore.class, withSettings().stubOnly());
+        when(store.findByUserId(anyString(), anyInt())).thenReturn(List.of());
+        when(store.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        SecurityEventProducer producer = new SecurityEventProducer(null, true, new SimpleMeterRegistry()) {
+            @Override
+            public CompletableFuture<SendResult<String, KtxEventRecord>> sendEvent(KtxEventRecord event,
+                                                                                   EventTrace trace) {
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+
+        SecurityProperties securityProperties = new SecurityProperties();
+        DetectionProperties detectionProperties = new DetectionProperties();
+        SecurityRulesProperties rulesProperties = new SecurityRulesProperties();
+        IpFailureTracker ipFailureTracker = new IpFailureTracker(securityProperties, detectionProperties);
+        SecurityRuleEngine ruleEngine = new SecurityRuleEngine(List.of(
+                new UnusualLoginPatternRule(rulesProperties),
+                new UserFailureThresholdRule(securityProperties),
+                new IpFailureThresholdRule(securityProperties, ipFailureTracker),
+                new UnusualIpActivityRule(securityProperties),
+                new SuccessAfterFailureRule(),
+                new RepeatedUnusualBehaviourRule(new UnusualBehaviourProperties())
+        ), rulesProperties);
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(false);
+        service = new SecurityService(store, new SecurityEventWriter(store, writeBehindProperties), producer,
+                ruleEngine, new DetectionStateCache(store, detectionProperties, securityProperties),
+                ipFailureTracker,
+                new AlertLatencyTracker(new SimpleMeterRegistry(), new TraceProperties()));
+
+        KtxEventSerializer serializer = new KtxEventSerializer(WireFormat.BINARY);
+        deserializer = new KtxEventDeserializer();
+        poll = new ArrayList<>(BATCH_SIZE);
+        decoded = new ArrayList<>(BATCH_SIZE);
+        LocalDateTime start = LocalDateTime.now();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            KtxEvent.EventType type = PATTERN[(i / USERS) % PATTERN.length];
+            KtxEventRecord event = new KtxEventRecord(UuidV7.randomUuid(), start.plusSeconds(i), type,
+                    KtxEvent.Level.INFO, KtxEvent.Criticality.REGULAR, "user-" + (i % USERS),
+                    "10.0." + (i % USERS) + "." + (i % 3), type.name(), "auth-service");
+            byte[] data = serializer.serialize(TOPIC, event);
+            poll.add(data);
+            decoded.add(deserializer.deserialize(TOPIC, data));
+        }
+    }
+
+    /**
+     * Decodes and secures one poll, as the auth-events listener does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void consume() {
+        List<KtxEventRecord> events = new ArrayList<>(BATCH_SIZE);
+        for (byte[] data : poll) {
+            events.add(deserializer.deserialize(TOPIC, data));
+        }
+        service.secureAll(events, 0);
+    }
+
+    /**
+     * Secures one poll of already decoded events.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void secure() {
+        service.secureAll(decoded, 0);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DetectionThroughputBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
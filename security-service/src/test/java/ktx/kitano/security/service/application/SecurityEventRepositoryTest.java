@@ -2,20 +2,28 @@ package ktx.kitano.security.service.application;
 
 import com.kitano.core.model.SystemEvent;
 import com.kitano.core.model.SystemException;
+import com.kitano.core.model.UuidV7;
 import com.kitano.iface.model.KtxEvent;
+import ktx.kitano.security.service.config.EventQueryProperties;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventJpaRepository;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventJpaStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,13 +32,16 @@ class SecurityEventRepositoryTest {
     @Mock
     private SecurityEventJpaRepository jpaRepository;
 
-    @InjectMocks
+    private EventQueryProperties properties;
+
     private SecurityEventJpaStore repository;
 
     private SystemEvent event;
 
     @BeforeEach
     void setUp() {
+        properties = new EventQueryProperties();
+        repository = new SecurityEventJpaStore(jpaRepository, properties);
         event = SystemEvent.builder()
                 .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
                 .level(KtxEvent.Level.WARNING)
@@ -60,56 +71,114 @@ class SecurityEventRepositoryTest {
         verify(jpaRepository, never()).save(any());
     }
 
+    @Test
+    void saveAll_shouldPersistEventsInOneCall() throws Exception {
+        when(jpaRepository.saveAll(List.of(event, event))).thenReturn(List.of(event, event));
+
+        List<SystemEvent> savedEvents = repository.saveAll(List.of(event, event));
+
+        assertEquals(2, savedEvents.size());
+        verify(jpaRepository, times(1)).saveAll(List.of(event, event));
+    }
+
+    @Test
+    void saveAll_shouldSkipEmptyBatch() throws Exception {
+        assertTrue(repository.saveAll(List.of()).isEmpty());
+        verify(jpaRepository, never()).saveAll(any());
+    }
+
     @Test
     void findByType_shouldReturnMatchingEvents() {
-        when(jpaRepository.findByEventType(KtxEvent.EventType.AUTHENTICATION_SUCCESS)).thenReturn(List.of(event));
+        when(jpaRepository.findByEventTypeAndTimestampBetween(eq(KtxEvent.EventType.AUTHENTICATION_SUCCESS),
+                any(), any(), any())).thenReturn(List.of(event));
 
         List<SystemEvent> result = repository.findByType(KtxEvent.EventType.AUTHENTICATION_SUCCESS);
 
         assertEquals(1, result.size());
         assertEquals(event, result.get(0));
-        verify(jpaRepository, times(1)).findByEventType(KtxEvent.EventType.AUTHENTICATION_SUCCESS);
+        verify(jpaRepository, times(1)).findByEventTypeAndTimestampBetween(eq(KtxEvent.EventType.AUTHENTICATION_SUCCESS),
+                any(), any(), any());
+    }
+
+    @Test
+    void findAllByOrder_shouldBoundTimeRangeAndPageSize() {
+        properties.setLookbackDays(7);
+        properties.setMaxResults(50);
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> to = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        when(jpaRepository.findByTimestampBetween(from.capture(), to.capture(), page.capture())).thenReturn(List.of(event));
+
+        repository.findAllByOrder(Sort.Direction.DESC);
+
+        assertEquals(from.getValue().plusDays(7), to.getValue());
+        assertEquals(50, page.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "timestamp"), page.getValue().getSort());
+    }
+
+    @Test
+    void findByUserId_shouldCapLimitToMaxResults() {
+        properties.setMaxResults(50);
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        when(jpaRepository.findByUserId(eq("user-123"), page.capture())).thenReturn(List.of(event));
+
+        repository.findByUserId("user-123", 500);
+
+        assertEquals(50, page.getValue().getPageSize());
     }
 
     @Test
     void findById_shouldReturnEvent() {
-        when(jpaRepository.findById("1234")).thenReturn(Optional.of(event));
+        UUID id = UuidV7.randomUuid();
+        when(jpaRepository.findById(id)).thenReturn(Optional.of(event));
 
-        SystemEvent result = repository.findById("1234");
+        SystemEvent result = repository.findById(id.toString());
 
         assertNotNull(result);
         assertEquals(event, result);
-        verify(jpaRepository, times(1)).findById("1234");
+        verify(jpaRepository, times(1)).findById(id);
     }
 
     @Test
     void findById_shouldReturnNullIfNotFound() {
-        when(jpaRepository.findById("9999")).thenReturn(Optional.empty());
+        UUID id = UuidV7.randomUuid();
+        when(jpaRepository.findById(id)).thenReturn(Optional.empty());
 
+        SystemEvent result = repository.findById(id.toString());
+
+        assertNull(result);
+        verify(jpaRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void findById_shouldReturnNullForInvalidId() {
         SystemEvent result = repository.findById("9999");
 
         assertNull(result);
-        verify(jpaRepository, times(1)).findById("9999");
+        verifyNoInteractions(jpaRepository);
     }
 
     @Test
     void findByUserId_shouldReturnEventsForUser() {
-        when(jpaRepository.findByUserId("550e8400-e29b-41d4-a716-446655440000")).thenReturn(List.of(event));
+        when(jpaRepository.findByUserIdAndTimestampBetween(eq("550e8400-e29b-41d4-a716-446655440000"),
+                any(), any(), any())).thenReturn(List.of(event));
 
         List<SystemEvent> result = repository.findByUserId("550e8400-e29b-41d4-a716-446655440000");
 
         assertEquals(1, result.size());
         assertEquals(event, result.get(0));
-        verify(jpaRepository, times(1)).findByUserId("550e8400-e29b-41d4-a716-446655440000");
+        verify(jpaRepository, times(1)).findByUserIdAndTimestampBetween(eq("550e8400-e29b-41d4-a716-446655440000"),
+                any(), any(), any());
     }
 
     @Test
     void findByUserId_shouldReturnEmptyListIfNotFound() {
-        when(jpaRepository.findByUserId("unknown-user")).thenReturn(List.of());
+        when(jpaRepository.findByUserIdAndTimestampBetween(eq("unknown-user"), any(), any(), any()))
+                .thenReturn(List.of());
 
         List<SystemEvent> result = repository.findByUserId("unknown-user");
 
         assertTrue(result.isEmpty());
-        verify(jpaRepository, times(1)).findByUserId("unknown-user");
+        verify(jpaRepository, times(1)).findByUserIdAndTimestampBetween(eq("unknown-user"), any(), any(), any());
     }
 }
\ No newline at end of file
@@ -1,20 +1,42 @@
 package ktx.kitano.security.service.application;
 
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.core.model.SystemEvent;
 import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import ktx.kitano.security.service.application.rule.*;
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
+import ktx.kitano.security.service.application.trace.AlertTrace;
+import ktx.kitano.security.service.config.DetectionProperties;
 import ktx.kitano.security.service.config.SecurityProperties;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import ktx.kitano.security.service.config.TraceProperties;
 import ktx.kitano.security.service.config.UnusualBehaviourProperties;
 import ktx.kitano.security.service.infrastructure.messaging.SecurityEventProducer;
+import ktx.kitano.security.service.config.WriteBehindProperties;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
 import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_SUCCESS;
+import static com.kitano.iface.model.KtxEvent.EventType.UNUSUAL_BEHAVIOR;
+import static com.kitano.iface.model.KtxEvent.EventType.USER_ACTION;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 class SecurityServiceBehaviourTest {
@@ -23,40 +45,65 @@ class SecurityServiceBehaviourTest {
     private SecurityEventStore<SystemEvent> store;
     private SecurityEventProducer producer;
     private SecurityService service;
+    private DetectionStateCache stateCache;
+    private IpFailureTracker ipFailureTracker;
     private SecurityProperties securityProperties;
     private UnusualBehaviourProperties usualBehaviourProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AlertLatencyTracker latencyTracker;
+    private Instant now;
     private long timeDifference = 1;
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
         store = mock(SecurityEventStore.class);
         producer = mock(SecurityEventProducer.class);
+        when(producer.sendEvent(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
         securityProperties = new SecurityProperties();
         usualBehaviourProperties = new UnusualBehaviourProperties();
-        service = new SecurityService(store, producer, securityProperties, usualBehaviourProperties);
+        DetectionProperties detectionProperties = new DetectionProperties();
+        SecurityRulesProperties rulesProperties = new SecurityRulesProperties();
+        ipFailureTracker = new IpFailureTracker(securityProperties, detectionProperties);
+        SecurityRuleEngine ruleEngine = new SecurityRuleEngine(List.of(
+                new UnusualLoginPatternRule(rulesProperties),
+                new UserFailureThresholdRule(securityProperties),
+                new IpFailureThresholdRule(securityProperties, ipFailureTracker),
+                new UnusualIpActivityRule(securityProperties),
+                new SuccessAfterFailureRule(),
+                new RepeatedUnusualBehaviourRule(usualBehaviourProperties)
+        ), rulesProperties);
+        stateCache = new DetectionStateCache(store, detectionProperties, securityProperties);
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(false);
+        meterRegistry = new SimpleMeterRegistry();
+        now = Instant.parse("2026-10-18T09:00:00Z");
+        latencyTracker = new AlertLatencyTracker(meterRegistry, new TraceProperties(), Clock.fixed(now, ZoneOffset.UTC));
+        service = new SecurityService(store, new SecurityEventWriter(store, writeBehindProperties), producer,
+                ruleEngine, stateCache, ipFailureTracker, latencyTracker);
+        when(store.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
     void secure_shouldAllowNormalBehavior() {
 
-        List<SystemEvent> events = List.of(
+        List<SystemEvent> events = stored(
                 event(AUTHENTICATION_SUCCESS),
                 event(AUTHENTICATION_FAILURE),
                 event(KtxEvent.EventType.USER_ACTION)
         );
 
-        when(store.findByUserId(userId)).thenReturn(events);
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(events);
 
-        SystemEvent newEvent = event(KtxEvent.EventType.USER_ACTION);
+        KtxEventRecord newEvent = event(KtxEvent.EventType.USER_ACTION);
 
         assertDoesNotThrow(() -> service.secure(newEvent));
     }
 
     @Test
     void secure_shouldHandleEmptyEventList() {
-        when(store.findByUserId(userId)).thenReturn(List.of());
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(List.of());
 
-        SystemEvent newEvent = event(AUTHENTICATION_FAILURE);
+        KtxEventRecord newEvent = event(AUTHENTICATION_FAILURE);
 
         assertDoesNotThrow(() -> service.secure(newEvent));
     }
@@ -67,58 +114,217 @@ class SecurityServiceBehaviourTest {
         usualBehaviourProperties.setCount(5);
         usualBehaviourProperties.setDays(7);
 
-        List<SystemEvent> events = List.of(
+        List<SystemEvent> events = stored(
                 event(KtxEvent.EventType.UNUSUAL_BEHAVIOR),
                 event(KtxEvent.EventType.UNUSUAL_BEHAVIOR)
         );
 
-        when(store.findByUserId(userId)).thenReturn(events);
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(events);
 
-        SystemEvent newEvent = event(KtxEvent.EventType.AUTHENTICATION_SUCCESS);
+        KtxEventRecord newEvent = event(KtxEvent.EventType.AUTHENTICATION_SUCCESS);
 
         service.secure(newEvent);
 
-        verify(producer, never()).sendEvent(argThat(e -> e.eventType() == KtxEvent.EventType.SECURITY));
+        verify(producer, never()).sendEvent(argThat(e -> e.eventType() == KtxEvent.EventType.SECURITY), any());
     }
 
-    private SystemEvent eventWithIp(String ip) {
-        return SystemEvent.builder()
-                .eventType(AUTHENTICATION_SUCCESS)
-                .timestamp(LocalDateTime.now())
-                .level(KtxEvent.Level.INFO)
-                .criticality(KtxEvent.Criticality.REGULAR)
-                .userId(userId)
-                .ipAddress(ip)
-                .message("Test")
-                .source("auth-service")
-                .build();
+    @Test
+    void secure_shouldReadStoreOnlyOnceForSameUser() {
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(stored(event(AUTHENTICATION_SUCCESS)));
+
+        service.secure(event(AUTHENTICATION_SUCCESS));
+        service.secure(event(AUTHENTICATION_SUCCESS));
+        service.secure(event(AUTHENTICATION_FAILURE));
+
+        verify(store, times(1)).findByUserId(eq(userId), anyInt());
+        verify(store, never()).findByUserId(userId);
+    }
+
+    @Test
+    void secure_shouldDetectSuccessAfterFailureFromState() throws Exception {
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(stored(event(USER_ACTION)));
+
+        service.secure(event(AUTHENTICATION_FAILURE));
+        service.secure(event(AUTHENTICATION_SUCCESS));
+
+        verify(producer).sendEvent(argThat(e -> "Suspicious login success after failure".equals(e.message())), any());
+    }
+
+    @Test
+    void secure_shouldDetectUnusualIpActivity() throws Exception {
+        securityProperties.setMaxIpCount(2);
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(stored(eventWithIp("10.0.0.1"), eventWithIp("10.0.0.2")));
+
+        service.secure(eventWithIp("10.0.0.3"));
+
+        verify(producer).sendEvent(argThat(e -> "Unusual IP activity detected".equals(e.message())), any());
+    }
+
+    @Test
+    void secure_shouldRaiseSecurityEventOnRepeatedUnusualBehaviour() throws Exception {
+        usualBehaviourProperties.setCount(2);
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(stored(
+                eventWithType(USER_ACTION, LocalDateTime.now().minusMinutes(30)),
+                eventWithType(UNUSUAL_BEHAVIOR, LocalDateTime.now().minusHours(1)),
+                eventWithType(UNUSUAL_BEHAVIOR, LocalDateTime.now().minusHours(2))
+        ));
+
+        service.secure(event(USER_ACTION));
+
+        verify(producer).sendEvent(argThat(e -> e.eventType() == KtxEvent.EventType.SECURITY), any());
+    }
+
+    @Test
+    void secure_shouldTripOnceWhenFailuresReachThresholdWithinWindow() throws Exception {
+        securityProperties.setMaxFailures(3);
+        securityProperties.setFailureWindowMinutes(10);
+
+        LocalDateTime start = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            service.secure(failureAt(start.plusSeconds(i)));
+        }
+
+        verify(producer, times(1)).sendEvent(argThat(e -> "Maximum number of failed login attempts reached".equals(e.message())), any());
+        verify(producer, times(1)).sendEvent(argThat(e -> "Maximum number of failed login attempts reached for IP address".equals(e.message())), any());
+        verify(store, times(1)).findByUserId(eq(userId), anyInt());
+    }
+
+    @Test
+    void secure_shouldDetectFailureAfterSuccessStreak() throws Exception {
+        when(store.findByUserId(eq(userId), anyInt())).thenReturn(stored(
+                event(AUTHENTICATION_SUCCESS), event(AUTHENTICATION_SUCCESS), event(AUTHENTICATION_SUCCESS)));
+
+        service.secure(event(AUTHENTICATION_FAILURE));
+
+        verify(producer).sendEvent(argThat(e -> "Unusual login pattern detected".equals(e.message())), any());
+    }
+
+    @Test
+    void secure_shouldTrackIpFailuresWithoutTheIpRule() {
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(false);
+        SecurityService withoutRules = new SecurityService(store, new SecurityEventWriter(store, writeBehindProperties),
+                producer, new SecurityRuleEngine(List.of(), new SecurityRulesProperties()), stateCache,
+                ipFailureTracker, latencyTracker);
+        LocalDateTime now = LocalDateTime.now();
+
+        withoutRules.secure(failureAt(now));
+        withoutRules.secure(failureAt(now));
+        withoutRules.secure(event(AUTHENTICATION_SUCCESS));
+
+        assertEquals(2, ipFailureTracker.countFailures("127.0.0.1", now));
+    }
+
+    @Test
+    void secure_shouldNotCountFailuresOutsideWindow() throws Exception {
+        securityProperties.setMaxFailures(3);
+        securityProperties.setFailureWindowMinutes(10);
+
+        LocalDateTime start = LocalDateTime.now();
+        service.secure(failureAt(start));
+        service.secure(failureAt(start.plusMinutes(15)));
+        service.secure(failureAt(start.plusMinutes(30)));
+
+        verify(producer, never()).sendEvent(any(), any());
+    }
+
+    @Test
+    void secureAll_shouldLoadEachUserOnceAndPersistAlertsInOneBatch() throws Exception {
+        securityProperties.setMaxFailures(2);
+        KtxEventRecord otherUserFailure = eventOf("user-456", AUTHENTICATION_FAILURE, "10.0.0.9", LocalDateTime.now());
+
+        service.secureAll(List.of(
+                failureAt(LocalDateTime.now()),
+                otherUserFailure,
+                failureAt(LocalDateTime.now()),
+                event(AUTHENTICATION_SUCCESS)
+        ));
+
+        verify(store, times(1)).findByUserId(eq(userId), anyInt());
+        verify(store, times(1)).findByUserId(eq("user-456"), anyInt());
+        verify(store, times(1)).saveAll(argThat(alerts -> alerts.size() == 3));
+        verify(store, never()).save(any());
+        verify(producer, times(3)).sendEvent(any(), any());
+    }
+
+    @Test
+    void secureAll_shouldTraceAlertsFromTheirTriggeringEvent() throws Exception {
+        securityProperties.setMaxFailures(2);
+        EventTrace slow = new EventTrace("slow", now.toEpochMilli() * 1_000 - 80_000);
+        EventTrace fast = new EventTrace("fast", now.toEpochMilli() * 1_000 - 5_000);
+
+        service.secureAll(Arrays.asList(
+                failureAt(LocalDateTime.now()),
+                event(USER_ACTION),
+                failureAt(LocalDateTime.now())
+        ), Arrays.asList(null, fast, slow), 0);
+
+        // both thresholds trip on the second failure
+        verify(producer, times(2)).sendEvent(any(), eq(slow));
+        List<AlertTrace> traces = latencyTracker.slowest(10);
+        assertEquals(2, traces.size());
+        assertEquals("slow", traces.get(0).traceId());
+        assertEquals(80_000, traces.get(0).latencyMicros());
+        assertEquals(2, meterRegistry.get("security.alert.latency").tag("type", "UNUSUAL_BEHAVIOR").timer().count());
     }
 
-    private SystemEvent eventWithType(KtxEvent.EventType type) {
-        return SystemEvent.builder()
-                .eventType(type)
-                .level(KtxEvent.Level.INFO)
-                .criticality(KtxEvent.Criticality.REGULAR)
-                .userId(userId)
-                .ipAddress("127.0.0.1")
-                .message("Test")
-                .source("auth-service")
-                .build();
+    @Test
+    void secureAll_shouldTraceAlertsOnceKafkaAcknowledgedThem() {
+        securityProperties.setMaxFailures(1);
+        CompletableFuture<SendResult<String, KtxEventRecord>> acknowledged = new CompletableFuture<>();
+        CompletableFuture<SendResult<String, KtxEventRecord>> failed = new CompletableFuture<>();
+        when(producer.sendEvent(any(), any())).thenReturn(acknowledged, failed);
+        EventTrace trace = new EventTrace("trace", now.toEpochMilli() * 1_000 - 10_000);
+
+        service.secureAll(List.of(failureAt(LocalDateTime.now())), List.of(trace), 0);
+
+        verify(producer, times(2)).sendEvent(any(), eq(trace));
+        assertEquals(0, latencyTracker.slowest(10).size());
+
+        acknowledged.complete(null);
+        failed.completeExceptionally(new IllegalStateException("broker down"));
+        assertEquals(1, latencyTracker.slowest(10).size());
+    }
+
+    @Test
+    void evictPartitions_shouldReloadUsersOfRevokedPartitions() {
+        KtxEventRecord otherUserFailure = eventOf("user-456", AUTHENTICATION_FAILURE, "127.0.0.1", LocalDateTime.now());
+
+        service.secureAll(List.of(failureAt(LocalDateTime.now())), 0);
+        service.secureAll(List.of(otherUserFailure), 1);
+        stateCache.evictPartitions(List.of(0));
+        service.secureAll(List.of(failureAt(LocalDateTime.now())), 0);
+        service.secureAll(List.of(otherUserFailure), 1);
+
+        verify(store, times(2)).findByUserId(eq(userId), anyInt());
+        verify(store, times(1)).findByUserId(eq("user-456"), anyInt());
+    }
+
+    private KtxEventRecord failureAt(LocalDateTime timestamp) {
+        return eventWithType(AUTHENTICATION_FAILURE, timestamp);
+    }
+
+    private KtxEventRecord eventWithIp(String ip) {
+        return eventOf(userId, AUTHENTICATION_SUCCESS, ip, LocalDateTime.now().plusMinutes(++timeDifference));
     }
 
+    private KtxEventRecord eventWithType(KtxEvent.EventType type, LocalDateTime timestamp) {
+        return eventOf(userId, type, "127.0.0.1", timestamp);
+    }
 
-    private SystemEvent event(KtxEvent.EventType type) {
-        return SystemEvent.builder()
-                .eventType(type)
-                .level(KtxEvent.Level.INFO)
-                .criticality(KtxEvent.Criticality.REGULAR)
-                .userId(userId)
-                .ipAddress("localhost")
-                .message("Test event")
-                .source("auth-service")
-                .timestamp(LocalDateTime.now().plusMinutes(++timeDifference))
-                .build();
+    private KtxEventRecord event(KtxEvent.EventType type) {
+        return eventOf(userId, type, "localhost", LocalDateTime.now().plusMinutes(++timeDifference));
     }
 
+    private static KtxEventRecord eventOf(String userId, KtxEvent.EventType type, String ip, LocalDateTime timestamp) {
+        return new KtxEventRecord(null, timestamp, type, KtxEvent.Level.INFO, KtxEvent.Criticality.REGULAR,
+                userId, ip, "Test", "auth-service");
+    }
 
-}
\ No newline at end of file
+    /**
+     * @return the given events as read from the store
+     */
+    private static List<SystemEvent> stored(KtxEventRecord... events) {
+        return Arrays.stream(events).map(SystemEvent::of).toList();
+    }
+}
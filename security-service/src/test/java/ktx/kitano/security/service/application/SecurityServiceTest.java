@@ -2,12 +2,19 @@ package ktx.kitano.security.service.application;
 
 import com.kitano.core.model.SystemEvent;
 import com.kitano.iface.model.KtxEvent;
+import ktx.kitano.security.service.application.rule.SecurityRuleEngine;
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
+import ktx.kitano.security.service.config.TraceProperties;
 import ktx.kitano.security.service.infrastructure.messaging.SecurityEventProducer;
+import ktx.kitano.security.service.config.WriteBehindProperties;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Sort;
@@ -26,13 +33,26 @@ class SecurityServiceTest {
     @Mock
     private SecurityEventProducer producer;
 
-    @InjectMocks
+    @Mock
+    private DetectionStateCache stateCache;
+
+    @Mock
+    private SecurityRuleEngine ruleEngine;
+
+    @Mock
+    private IpFailureTracker ipFailureTracker;
+
     private SecurityService service;
 
     private SystemEvent event;
 
     @BeforeEach
     void setUp() {
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(false);
+        service = new SecurityService(repository, new SecurityEventWriter(repository, writeBehindProperties),
+                producer, ruleEngine, stateCache, ipFailureTracker,
+                new AlertLatencyTracker(new SimpleMeterRegistry(), new TraceProperties()));
         event = SystemEvent.builder()
                 .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
                 .level(KtxEvent.Level.WARNING)
@@ -48,13 +68,13 @@ class SecurityServiceTest {
     void logEvent_shouldSaveEventAndTriggerKafka() throws Exception {
         when(repository.save(event)).thenReturn(event);
 
-        SystemEvent result = service.logEvent(event);
+        SystemEvent result = service.logEvent(event).join();
 
         assertNotNull(result);
         assertEquals(event, result);
 
         verify(repository, times(1)).save(event);
-        verify(producer, times(1)).sendEvent(event);
+        verify(producer, times(1)).sendEvent(event.toRecord(), null);
     }
 
     @Test
@@ -0,0 +1,114 @@
+package ktx.kitano.security.service.application.rule;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ktx.kitano.security.service.application.state.UserDetectionState;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityRuleEngineTest {
+
+    private SecurityRulesProperties properties;
+    private UserDetectionState state;
+    private KtxEventRecord event;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SecurityRulesProperties();
+        state = new UserDetectionState("user-123", 8, 8, 8, 10);
+        event = new KtxEventRecord(null, LocalDateTime.now(), KtxEvent.EventType.AUTHENTICATION_FAILURE,
+                KtxEvent.Level.INFO, KtxEvent.Criticality.REGULAR, "user-123", "127.0.0.1",
+                "Bad credentials", "auth-service");
+    }
+
+    @Test
+    void evaluate_shouldBuildOneAlertPerTrippedRule() {
+        SecurityRuleEngine engine = new SecurityRuleEngine(List.of(
+                rule("always", SecurityAlert.unusualBehaviour("Always")),
+                rule("never", null),
+                rule("critical", SecurityAlert.security("Critical"))
+        ), properties);
+
+        List<KtxEventRecord> alerts = engine.evaluate(event, state);
+
+        assertEquals(2, alerts.size());
+        assertEquals("Always", alerts.get(0).message());
+        assertEquals(KtxEvent.EventType.SECURITY, alerts.get(1).eventType());
+        assertEquals("user-123", alerts.get(1).userId());
+        assertEquals("127.0.0.1", alerts.get(1).ipAddress());
+        assertEquals(SecurityAlert.SOURCE, alerts.get(1).source());
+        // alerts are complete before being stored
+        assertNotNull(alerts.get(0).id());
+        assertNotEquals(alerts.get(0).id(), alerts.get(1).id());
+    }
+
+    @Test
+    void evaluate_shouldSkipDisabledRules() {
+        properties.setDisabled(Set.of("always"));
+        SecurityRuleEngine engine = new SecurityRuleEngine(List.of(
+                rule("always", SecurityAlert.unusualBehaviour("Always"))
+        ), properties);
+
+        assertTrue(engine.evaluate(event, state).isEmpty());
+    }
+
+    @Test
+    void statistics_shouldReportEvaluationsPerRule() {
+        properties.setDisabled(Set.of("never"));
+        SecurityRuleEngine engine = new SecurityRuleEngine(List.of(
+                rule("always", SecurityAlert.unusualBehaviour("Always")),
+                rule("never", null)
+        ), properties);
+
+        engine.evaluate(event, state);
+        engine.evaluate(event, state);
+
+        List<RuleStatistics> statistics = engine.statistics();
+        assertEquals(2, statistics.size());
+        assertTrue(statistics.get(0).enabled());
+        assertEquals(2, statistics.get(0).evaluations());
+        assertEquals(2, statistics.get(0).alerts());
+        assertTrue(statistics.get(0).totalNanos() >= statistics.get(0).maxNanos());
+        assertFalse(statistics.get(1).enabled());
+        assertEquals(0, statistics.get(1).evaluations());
+    }
+
+    @Test
+    void bindTo_shouldExportEnabledRuleMeters() {
+        properties.setDisabled(Set.of("never"));
+        SecurityRuleEngine engine = new SecurityRuleEngine(List.of(
+                rule("always", SecurityAlert.unusualBehaviour("Always")),
+                rule("never", null)
+        ), properties);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        engine.bindTo(registry);
+
+        engine.evaluate(event, state);
+
+        assertEquals(1, registry.get("security.rule.evaluation").tag("rule", "always").functionTimer().count());
+        assertEquals(1, registry.get("security.rule.alerts").tag("rule", "always").functionCounter().count());
+        assertNull(registry.find("security.rule.evaluation").tag("rule", "never").functionTimer());
+    }
+
+    private SecurityRule rule(String name, SecurityAlert alert) {
+        return new SecurityRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public SecurityAlert evaluate(KtxEventRecord event, UserDetectionState state) {
+                return alert;
+            }
+        };
+    }
+}
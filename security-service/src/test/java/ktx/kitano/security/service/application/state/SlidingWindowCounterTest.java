@@ -0,0 +1,46 @@
+package ktx.kitano.security.service.application.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowCounterTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Test
+    void count_shouldSumOccurrencesWithinWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(5);
+
+        counter.add(start);
+        counter.add(start.plusSeconds(30));
+        counter.add(start.plusMinutes(3));
+
+        assertEquals(3, counter.count(start.plusMinutes(4)));
+        assertEquals(1, counter.count(start.plusMinutes(5)));
+        assertEquals(0, counter.count(start.plusMinutes(8)));
+    }
+
+    @Test
+    void add_shouldReuseBucketsOnceWindowHasSlid() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(2);
+
+        counter.add(start);
+        counter.add(start.plusMinutes(2));
+        counter.add(start.plusMinutes(2));
+
+        assertEquals(2, counter.count(start.plusMinutes(2)));
+    }
+
+    @Test
+    void add_shouldIgnoreOccurrencesOlderThanWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(2);
+
+        counter.add(start.plusMinutes(4));
+        counter.add(start);
+
+        assertEquals(1, counter.count(start.plusMinutes(4)));
+    }
+}
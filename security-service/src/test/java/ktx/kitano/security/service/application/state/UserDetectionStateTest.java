@@ -0,0 +1,82 @@
+package ktx.kitano.security.service.application.state;
+
+import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_FAILURE;
+import static com.kitano.iface.model.KtxEvent.EventType.AUTHENTICATION_SUCCESS;
+import static com.kitano.iface.model.KtxEvent.EventType.UNUSUAL_BEHAVIOR;
+import static com.kitano.iface.model.KtxEvent.EventType.USER_ACTION;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetectionStateTest {
+
+    private UserDetectionState state;
+
+    @BeforeEach
+    void setUp() {
+        state = new UserDetectionState("user-123", 3, 2, 2, 10);
+    }
+
+    @Test
+    void record_shouldKeepOnlyRecentTypes() {
+        state.record(event(AUTHENTICATION_FAILURE, "10.0.0.1"));
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.1"));
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.1"));
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.1"));
+
+        assertTrue(state.lastTypesAre(AUTHENTICATION_SUCCESS, 3));
+        assertEquals(AUTHENTICATION_SUCCESS, state.recentType(2));
+        assertNull(state.recentType(3));
+        assertEquals(4, state.getEventCount());
+    }
+
+    @Test
+    void countFailures_shouldOnlyCountFailuresWithinWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        state.record(eventAt(AUTHENTICATION_FAILURE, now.minusMinutes(20)));
+        state.record(eventAt(AUTHENTICATION_FAILURE, now.minusMinutes(2)));
+        state.record(eventAt(USER_ACTION, now.minusMinutes(1)));
+        state.record(eventAt(AUTHENTICATION_FAILURE, now));
+
+        assertEquals(2, state.countFailures(now));
+    }
+
+    @Test
+    void distinctIpCount_shouldBeBoundedByTrackedIps() {
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.1"));
+        assertEquals(1, state.distinctIpCount("10.0.0.1"));
+        assertEquals(2, state.distinctIpCount("10.0.0.2"));
+
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.2"));
+        state.record(event(AUTHENTICATION_SUCCESS, "10.0.0.3"));
+        assertEquals(2, state.distinctIpCount("10.0.0.4"));
+    }
+
+    @Test
+    void countUnusualBehavioursSince_shouldIgnoreOldAlerts() {
+        state.record(eventAt(UNUSUAL_BEHAVIOR, LocalDateTime.now().minusDays(10)));
+        state.record(eventAt(UNUSUAL_BEHAVIOR, LocalDateTime.now().minusHours(1)));
+
+        assertEquals(1, state.countUnusualBehavioursSince(LocalDateTime.now().minusDays(1)));
+        assertEquals(0, state.getEventCount());
+        assertFalse(state.isEmpty());
+    }
+
+    private KtxEventRecord event(KtxEvent.EventType type, String ip) {
+        return eventAt(type, ip, LocalDateTime.now());
+    }
+
+    private KtxEventRecord eventAt(KtxEvent.EventType type, LocalDateTime timestamp) {
+        return eventAt(type, "10.0.0.1", timestamp);
+    }
+
+    private KtxEventRecord eventAt(KtxEvent.EventType type, String ip, LocalDateTime timestamp) {
+        return new KtxEventRecord(null, timestamp, type, KtxEvent.Level.INFO, KtxEvent.Criticality.REGULAR,
+                "user-123", ip, "Test event", "auth-service");
+    }
+}
@@ -0,0 +1,43 @@
+package ktx.kitano.security.service.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Binds the shipped {@code application.properties} to the configuration properties, as the
+ * service does on startup.
+ */
+class ApplicationPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(new ConfigDataApplicationContextInitializer())
+            .withUserConfiguration(Config.class);
+
+    @Test
+    void applicationProperties_shouldBind() {
+        contextRunner.run(context -> {
+            assertNull(context.getStartupFailure());
+            UnusualBehaviourProperties unusualBehaviour = context.getBean(UnusualBehaviourProperties.class);
+            assertEquals(7, unusualBehaviour.getDays());
+            assertEquals(3, unusualBehaviour.getCount());
+            assertEquals(500, context.getBean(DetectionProperties.class).getWarmupLimit());
+            assertEquals(256, context.getBean(TraceProperties.class).getRecentAlerts());
+        });
+    }
+
+    @EnableConfigurationProperties({
+            SecurityProperties.class,
+            UnusualBehaviourProperties.class,
+            DetectionProperties.class,
+            SecurityRulesProperties.class,
+            WriteBehindProperties.class,
+            EventQueryProperties.class,
+            TraceProperties.class
+    })
+    static class Config {
+    }
+}
@@ -1,16 +1,19 @@
 package ktx.kitano.security.service.infrastructure.messaging;
 
-import com.kitano.core.model.SystemEvent;
+import com.kitano.core.messaging.EventTrace;
 import com.kitano.iface.model.KtxEvent;
+import com.kitano.iface.model.KtxEventRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.kafka.core.KafkaOperations;
-import org.springframework.messaging.Message;
 
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
@@ -18,66 +21,62 @@ import static org.mockito.Mockito.verify;
 
 class SecurityEventProducerTest {
 
-    private KafkaOperations<String, SystemEvent> kafka;
+    private KafkaOperations<String, KtxEventRecord> kafka;
+    private SimpleMeterRegistry meterRegistry;
     private SecurityEventProducer producer;
 
     @BeforeEach
     void setUp() {
         kafka = mock(KafkaOperations.class);
-        producer = new SecurityEventProducer(kafka);
+        meterRegistry = new SimpleMeterRegistry();
+        producer = new SecurityEventProducer(kafka, true, meterRegistry);
     }
 
     @Test
     void sendEvent_successfully() {
         // Arrange
-        SystemEvent event = SystemEvent.builder()
-                .eventType(KtxEvent.EventType.SYSTEM)
-                .level(KtxEvent.Level.INFO)
-                .criticality(KtxEvent.Criticality.REGULAR)
-                .userId("user-123")
-                .ipAddress("127.0.0.1")
-                .message("Success")
-                .source("security-service")
-                .build();
-
-        CompletableFuture<org.springframework.kafka.support.SendResult<String, SystemEvent>> future = new CompletableFuture<>();
-        org.springframework.kafka.support.SendResult<String, SystemEvent> result = new org.springframework.kafka.support.SendResult<>(
+        KtxEventRecord event = new KtxEventRecord(null, null, KtxEvent.EventType.SYSTEM, KtxEvent.Level.INFO,
+                KtxEvent.Criticality.REGULAR, "user-123", "127.0.0.1", "Success", "security-service");
+
+        CompletableFuture<org.springframework.kafka.support.SendResult<String, KtxEventRecord>> future = new CompletableFuture<>();
+        org.springframework.kafka.support.SendResult<String, KtxEventRecord> result = new org.springframework.kafka.support.SendResult<>(
                 new ProducerRecord<>("auth-events", event),
                 new RecordMetadata(null, 0, 0, 0, 0L, 0, 0)
         );
         future.complete(result);
 
-        given(kafka.send(any(Message.class))).willReturn(future);
+        given(kafka.send(any(ProducerRecord.class))).willReturn(future);
+
+        EventTrace trace = EventTrace.start();
 
         // Act
-        producer.sendEvent(event);
+        producer.sendEvent(event, trace);
 
         // Assert
-        verify(kafka).send(any(Message.class));
+        ArgumentCaptor<ProducerRecord<String, KtxEventRecord>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafka).send(captor.capture());
+        assertEquals("user-123", captor.getValue().key());
+        assertEquals("security-events", captor.getValue().topic());
+        assertEquals(trace, EventTrace.readFrom(captor.getValue().headers()));
+        assertEquals(1, meterRegistry.get("events.send").tag("outcome", "success").timer().count());
     }
 
     @Test
     void sendEvent_shouldLogErrorOnFailure() {
         // Arrange
-        SystemEvent event = SystemEvent.builder()
-                .eventType(KtxEvent.EventType.SYSTEM)
-                .level(KtxEvent.Level.INFO)
-                .criticality(KtxEvent.Criticality.REGULAR)
-                .userId("user-123")
-                .ipAddress("127.0.0.1")
-                .message("Failure")
-                .source("security-service")
-                .build();
-
-        CompletableFuture<org.springframework.kafka.support.SendResult<String, SystemEvent>> future = new CompletableFuture<>();
+        KtxEventRecord event = new KtxEventRecord(null, null, KtxEvent.EventType.SYSTEM, KtxEvent.Level.INFO,
+                KtxEvent.Criticality.REGULAR, "user-123", "127.0.0.1", "Failure", "security-service");
+
+        CompletableFuture<org.springframework.kafka.support.SendResult<String, KtxEventRecord>> future = new CompletableFuture<>();
         future.completeExceptionally(new RuntimeException("Kafka unavailable"));
 
-        given(kafka.send(any(Message.class))).willReturn(future);
+        given(kafka.send(any(ProducerRecord.class))).willReturn(future);
 
         // Act
         producer.sendEvent(event);
 
         // Assert
-        verify(kafka).send(any(Message.class));
+        verify(kafka).send(any(ProducerRecord.class));
+        assertEquals(1, meterRegistry.get("events.send").tag("outcome", "failure").timer().count());
     }
 }
\ No newline at end of file
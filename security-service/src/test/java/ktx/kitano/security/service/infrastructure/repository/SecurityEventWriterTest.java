@@ -0,0 +1,101 @@
+package ktx.kitano.security.service.infrastructure.repository;
+
+import com.kitano.core.model.SystemEvent;
+import com.kitano.core.model.SystemException;
+import com.kitano.iface.model.KtxEvent;
+import ktx.kitano.security.service.config.WriteBehindProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class SecurityEventWriterTest {
+
+    private SecurityEventStore<SystemEvent> store;
+    private WriteBehindProperties properties;
+    private SecurityEventWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = mock(SecurityEventStore.class);
+        when(store.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        properties = new WriteBehindProperties();
+        properties.setMaxLatencyMillis(200);
+        writer = new SecurityEventWriter(store, properties);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void writeAll_shouldWriteQueuedEventsInOneBatch() throws Exception {
+        List<SystemEvent> events = List.of(event("user-1"), event("user-2"), event("user-3"));
+
+        List<SystemEvent> saved = writer.writeAll(events).join();
+
+        assertEquals(events, saved);
+        verify(store, times(1)).saveAll(argThat(batch -> batch.size() == 3));
+        verify(store, never()).save(any());
+    }
+
+    @Test
+    void write_shouldFailWhenBatchFails() throws Exception {
+        when(store.saveAll(any())).thenThrow(new SystemException("Database unavailable"));
+
+        CompletableFuture<SystemEvent> future = writer.write(event("user-1"));
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(SystemException.class, exception.getCause());
+    }
+
+    @Test
+    void stop_shouldFlushQueuedEvents() throws Exception {
+        writer.stop();
+        properties.setMaxLatencyMillis(60_000);
+        writer = new SecurityEventWriter(store, properties);
+        writer.start();
+
+        CompletableFuture<SystemEvent> first = writer.write(event("user-1"));
+        CompletableFuture<SystemEvent> second = writer.write(event("user-2"));
+        writer.stop();
+
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals("user-2", second.join().getUserId());
+        assertTrue(writer.write(event("user-3")).isCompletedExceptionally());
+    }
+
+    @Test
+    void write_shouldSaveSynchronouslyWhenDisabled() throws Exception {
+        properties.setEnabled(false);
+        SystemEvent event = event("user-1");
+        when(store.save(event)).thenReturn(event);
+
+        CompletableFuture<SystemEvent> future = new SecurityEventWriter(store, properties).write(event);
+
+        assertTrue(future.isDone());
+        verify(store, times(1)).save(event);
+    }
+
+    private SystemEvent event(String userId) {
+        return SystemEvent.builder()
+                .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
+                .level(KtxEvent.Level.WARNING)
+                .criticality(KtxEvent.Criticality.REGULAR)
+                .userId(userId)
+                .ipAddress("127.0.0.1")
+                .message("Failed login attempt")
+                .source("auth-service")
+                .build();
+    }
+}
@@ -1,23 +1,43 @@
 package ktx.kitano.security.service.infrastructure.web;
 
 import com.kitano.core.model.SystemEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kitano.core.model.SystemException;
+import com.kitano.core.model.UuidV7;
 import com.kitano.iface.model.KtxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ktx.kitano.security.service.application.EventCursor;
 import ktx.kitano.security.service.application.SecurityService;
+import ktx.kitano.security.service.application.rule.SecurityRuleEngine;
+import ktx.kitano.security.service.application.state.DetectionStateCache;
+import ktx.kitano.security.service.application.state.IpFailureTracker;
+import ktx.kitano.security.service.application.trace.AlertLatencyTracker;
+import ktx.kitano.security.service.config.DetectionProperties;
+import ktx.kitano.security.service.config.EventQueryProperties;
 import ktx.kitano.security.service.config.SecurityProperties;
-import ktx.kitano.security.service.config.UnusualBehaviourProperties;
+import ktx.kitano.security.service.config.SecurityRulesProperties;
+import ktx.kitano.security.service.config.TraceProperties;
+import ktx.kitano.security.service.config.WriteBehindProperties;
 import ktx.kitano.security.service.infrastructure.messaging.SecurityEventProducer;
 import ktx.kitano.security.service.infrastructure.repository.SecurityEventStore;
+import ktx.kitano.security.service.infrastructure.repository.SecurityEventWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class SecurityEventControllerTest {
@@ -27,7 +47,7 @@ class SecurityEventControllerTest {
     private SecurityEventStore<SystemEvent> eventStore;
     private SecurityEventProducer producer;
     private SecurityProperties securityProperties;
-    private UnusualBehaviourProperties unusualBehaviourProperties;
+    private WriteBehindProperties writeBehindProperties;
 
     private SystemEvent event;
 
@@ -36,9 +56,16 @@ class SecurityEventControllerTest {
         eventStore = mock(SecurityEventStore.class);
         producer = mock(SecurityEventProducer.class);
         securityProperties = new SecurityProperties();
-        unusualBehaviourProperties = new UnusualBehaviourProperties();
-        eventService = spy(new SecurityService(eventStore, producer, securityProperties, unusualBehaviourProperties));
-        controller = new SecurityEventController(eventService);
+        writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(false);
+        eventService = spy(new SecurityService(eventStore, new SecurityEventWriter(eventStore, writeBehindProperties),
+                producer,
+                new SecurityRuleEngine(List.of(), new SecurityRulesProperties()),
+                new DetectionStateCache(eventStore, new DetectionProperties(), securityProperties),
+                new IpFailureTracker(securityProperties, new DetectionProperties()),
+                new AlertLatencyTracker(new SimpleMeterRegistry(), new TraceProperties())));
+        controller = new SecurityEventController(eventService, writeBehindProperties, new EventQueryProperties(),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
 
         event = SystemEvent.builder()
                 .eventType(KtxEvent.EventType.AUTHENTICATION_FAILURE)
@@ -54,25 +81,95 @@ class SecurityEventControllerTest {
     @Test
     @DisplayName("Should return 200 and send event successfully")
     void logEvent_successful() throws Exception {
-        doReturn(event).when(eventService).logEvent(event);
+        doReturn(CompletableFuture.completedFuture(event)).when(eventService).logEvent(event);
 
-        ResponseEntity<SystemEvent> response = controller.logEvent(event);
+        ResponseEntity<SystemEvent> response = controller.logEvent(event, null, null).join();
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         verify(eventService, times(1)).logEvent(event);
     }
 
     @Test
-    @DisplayName("Should return all events in descending order")
+    @DisplayName("Should return 500 when the event cannot be written")
+    void logEvent_writeFailure() throws Exception {
+        when(eventStore.save(event)).thenThrow(new SystemException("Database unavailable"));
+
+        ResponseEntity<SystemEvent> response = controller.logEvent(event, null, null).join();
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(producer, never()).sendEvent(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return 202 without waiting for the write when acknowledging on queueing")
+    void logEvent_acknowledgeOnQueueing() {
+        writeBehindProperties.setAcknowledgeAfterWrite(false);
+        doReturn(new CompletableFuture<SystemEvent>()).when(eventService).logEvent(event);
+
+        ResponseEntity<SystemEvent> response = controller.logEvent(event, null, null).join();
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should return the first page of events with the cursor of the next one")
     void getAllEvents() {
+        event.setId(UuidV7.randomUuid());
+        event.setTimestamp(LocalDateTime.now());
         List<SystemEvent> events = List.of(event);
-        when(eventStore.findAllByOrder(any())).thenReturn(events);
+        when(eventStore.findPage(null, null, 100)).thenReturn(events);
 
-        ResponseEntity<List<SystemEvent>> response = controller.getAllEvents();
+        ResponseEntity<List<SystemEvent>> response = controller.getAllEvents(100, null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(events, response.getBody());
+        EventCursor next = EventCursor.decode(response.getHeaders().getFirst(SecurityEventController.NEXT_CURSOR_HEADER));
+        assertEquals(event.getId(), next.id());
+        assertEquals(event.getTimestamp(), next.timestamp());
+    }
+
+    @Test
+    @DisplayName("Should return the page of events following the cursor")
+    void getAllEvents_afterCursor() {
+        EventCursor cursor = new EventCursor(LocalDateTime.now(), UuidV7.randomUuid());
+        when(eventStore.findPage(cursor.timestamp(), cursor.id(), 10)).thenReturn(List.of());
+
+        ResponseEntity<List<SystemEvent>> response = controller.getAllEvents(10, cursor.encode());
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(eventStore).findPage(cursor.timestamp(), cursor.id(), 10);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a malformed cursor")
+    void getAllEvents_invalidCursor() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> controller.getAllEvents(10, "not-a-cursor"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.handleIllegalArgumentException(exception).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should stream events as newline delimited JSON")
+    void streamEvents() throws Exception {
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now();
+        when(eventStore.streamAll(eq(from), eq(to), any())).thenAnswer(invocation -> {
+            Consumer<SystemEvent> consumer = invocation.getArgument(2);
+            consumer.accept(event);
+            consumer.accept(event);
+            return 2L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response = controller.streamEvents(from, to);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"userId\":\"550e8400-e29b-41d4-a716-446655440000\""));
     }
 
     @Test
@@ -124,9 +221,9 @@ class SecurityEventControllerTest {
     @Test
     @DisplayName("Should return empty list when no events are found")
     void getAllEvents_noData() {
-        when(eventStore.findAllByOrder(any())).thenReturn(List.of());
+        when(eventStore.findPage(null, null, 100)).thenReturn(List.of());
 
-        ResponseEntity<List<SystemEvent>> response = controller.getAllEvents();
+        ResponseEntity<List<SystemEvent>> response = controller.getAllEvents(100, null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());